@@ -0,0 +1,67 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+
+/**
+ * {@code GET /avatar/all_pageable}: страница проекций {@code findAllInfo} против страницы сущностей
+ * {@code findAll(Pageable)}, которую эндпоинт отдавал раньше. Обе страницы с запросом количества.
+ * Выделение памяти на страницу: {@code ./gradlew jmh -PjmhInclude=AvatarPageBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+public class AvatarPageBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int avatars;
+
+    private ConfigurableApplicationContext context;
+    private AvatarRepository avatarRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = EmbeddedSchool.start();
+        EmbeddedSchool.seed(context, avatars);
+        EmbeddedSchool.seedAvatars(context, avatars);
+        avatarRepository = context.getBean(AvatarRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<AvatarInfo> infoFirstPage() {
+        return avatarRepository.findAllInfo(PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Avatar> entityFirstPage() {
+        return avatarRepository.findAll(PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<AvatarInfo> infoMiddlePage() {
+        return avatarRepository.findAllInfo(PageRequest.of(avatars / PAGE_SIZE / 2, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Avatar> entityMiddlePage() {
+        return avatarRepository.findAll(PageRequest.of(avatars / PAGE_SIZE / 2, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+import ru.hogwarts.school.storage.StoredFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Загрузка аватара в хранилище: запись нового файла с подсчетом хеша и повторная загрузка того же содержимого.
+ */
+@State(Scope.Benchmark)
+public class AvatarStorageBenchmark {
+
+    @Param({"1024", "10240", "102400", "1048576"})
+    private int fileSize;
+
+    private Path root;
+    private ContentAddressedFileStore store;
+    private byte[] payload;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("avatars-benchmark");
+        store = new ContentAddressedFileStore(root.toString());
+        payload = new byte[fileSize];
+        new Random(42).nextBytes(payload);
+        store.store(new ByteArrayInputStream(payload));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    /**
+     * Каждый вызов пишет новое содержимое, а затем удаляет файл, чтобы каталог не рос за время прогона.
+     */
+    @Benchmark
+    public StoredFile storeUnique() throws IOException {
+        byte[] unique = payload.clone();
+        ByteBuffer.wrap(unique).putLong(0, ++sequence);
+        StoredFile storedFile = store.store(new ByteArrayInputStream(unique));
+        store.delete(storedFile.contentHash());
+        return storedFile;
+    }
+
+    @Benchmark
+    public StoredFile storeDuplicate() throws IOException {
+        return store.store(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.hogwarts.school.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.hogwarts.school.SchoolApplication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поднимает приложение без веб-сервера на H2 в режиме совместимости с PostgreSQL.
+ * Схему строит Hibernate: скрипты Liquibase используют возможности, которых в H2 нет.
+ */
+final class EmbeddedSchool {
+
+    static final String[] FACULTY_NAMES = {"Гриффиндор", "Слизерин", "Когтевран", "Пуффендуй"};
+    static final String[] FACULTY_COLORS = {"красный", "зеленый", "синий", "желтый"};
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private EmbeddedSchool() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) throws IOException {
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:school;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.liquibase.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "path.to.avatars.folder=" + Files.createTempDirectory("avatars-benchmark"),
+                        "logging.level.root=WARN",
+                        "logging.level.ru.hogwarts.school=WARN")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Заполняет таблицы напрямую через JDBC: {@code students} студентов, равномерно по четырем факультетам.
+     * Возраст от 11 до 17 лет, имена уникальные, поэтому результаты запросов воспроизводимы между запусками.
+     * Индексы повторяют переносимые индексы из скриптов Liquibase.
+     */
+    static void seed(ConfigurableApplicationContext context, int students) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("CREATE INDEX student_name_index ON student (name)");
+        jdbcTemplate.execute("CREATE INDEX faculty_name_color_index ON faculty (name, color)");
+        jdbcTemplate.execute("CREATE INDEX student_age_id_index ON student (age, id)");
+        jdbcTemplate.execute("CREATE INDEX student_faculty_id_index ON student (faculty_id, id)");
+        for (int i = 0; i < FACULTY_NAMES.length; i++) {
+            jdbcTemplate.update("INSERT INTO faculty (id, name, color, version) VALUES (?, ?, ?, 0)",
+                    i + 1L, FACULTY_NAMES[i], FACULTY_COLORS[i]);
+        }
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 1; i <= students; i++) {
+            batch.add(new Object[]{(long) i, "Студент " + i, 11 + i % 7, 1L + i % FACULTY_NAMES.length});
+            if (batch.size() == INSERT_BATCH_SIZE || i == students) {
+                jdbcTemplate.batchUpdate("INSERT INTO student (id, name, age, faculty_id, version) VALUES (?, ?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Добавляет по аватару первым {@code avatars} студентам, поэтому вызывается после {@link #seed}.
+     * Содержимого на диске нет: измеряются только запросы к таблице {@code avatar}.
+     */
+    static void seedAvatars(ConfigurableApplicationContext context, int avatars) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 1; i <= avatars; i++) {
+            String contentHash = String.format("%064x", i);
+            batch.add(new Object[]{(long) i, "/avatars/" + contentHash, 1024L + i % 4096, "image/png", contentHash, (long) i});
+            if (batch.size() == INSERT_BATCH_SIZE || i == avatars) {
+                jdbcTemplate.batchUpdate("INSERT INTO avatar (id, file_path, file_size, media_type, content_hash, status, " +
+                        "storage, student_id) VALUES (?, ?, ?, ?, ?, 'READY', 'file', ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
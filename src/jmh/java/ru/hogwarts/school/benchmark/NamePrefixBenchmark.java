@@ -0,0 +1,83 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@code GET /student/all_names?letter=}: первые слова имен по префиксу. Префикс «Студент 1» совпадает
+ * примерно с девятой частью таблицы, «Я» — ни с одной строкой. Главное здесь — выделение памяти
+ * на запрос: {@code ./gradlew jmh -PjmhInclude=NamePrefixBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+public class NamePrefixBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int students;
+
+    @Param({"Студент 1", "Я"})
+    private String prefix;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private StudentRepository studentRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = EmbeddedSchool.start();
+        EmbeddedSchool.seed(context, students);
+        try {
+            context.getBean(JdbcTemplate.class).execute(
+                    "CREATE ALIAS split_part FOR 'ru.hogwarts.school.benchmark.NamePrefixBenchmark.splitPart'");
+        } catch (DataAccessException e) {
+            // Функция уже есть в этой версии H2
+        }
+        studentService = context.getBean(StudentService.class);
+        studentRepository = context.getBean(StudentRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Запрос, верхний регистр и сортировка, как их выполняет эндпоинт.
+     */
+    @Benchmark
+    public List<String> namesBeginWith() {
+        return studentService.getAllNamesBeginWithLetter(prefix);
+    }
+
+    /**
+     * Только запрос: разница с {@link #namesBeginWith()} — обработка в Java.
+     */
+    @Benchmark
+    public List<String> firstNamesByPattern() {
+        return studentRepository.findFirstNamesByPattern(prefix + "%");
+    }
+
+    /**
+     * {@code split_part} из PostgreSQL для H2: часть строки с номером {@code index}, начиная с 1.
+     */
+    public static String splitPart(String value, String delimiter, int index) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(Pattern.quote(delimiter), -1);
+        return index >= 1 && index <= parts.length ? parts[index - 1] : "";
+    }
+}
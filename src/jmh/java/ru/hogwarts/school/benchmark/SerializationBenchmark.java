@@ -0,0 +1,95 @@
+package ru.hogwarts.school.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сериализация списков так, как их отдают контроллеры. Mapper настроен тем же билдером, что и в Spring Boot.
+ * Запись идет в пустой поток, чтобы мерить Jackson, а не рост массива байт.
+ * <p>
+ * Сущности против записей {@link StudentView}, с модулем Blackbird и без него. Выделение памяти на ответ
+ * видно с профилировщиком gc: {@code ./gradlew jmh -PjmhInclude=SerializationBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final TypeReference<List<Student>> STUDENT_LIST = new TypeReference<>() {
+    };
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper blackbirdMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new BlackbirdModule())
+            .build();
+    private List<Student> students;
+    private List<StudentView> studentViews;
+    private List<Faculty> faculties;
+    private byte[] studentsJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        faculties = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int kind = i % EmbeddedSchool.FACULTY_NAMES.length;
+            faculties.add(new Faculty((long) i, EmbeddedSchool.FACULTY_NAMES[kind], EmbeddedSchool.FACULTY_COLORS[kind]));
+        }
+        students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Student student = new Student((long) i, "Студент " + i, 11 + i % 7);
+            student.setFaculty(faculties.get(i % EmbeddedSchool.FACULTY_NAMES.length));
+            student.setVersion(0L);
+            students.add(student);
+        }
+        studentViews = new ArrayList<>(size);
+        for (Student student : students) {
+            Faculty faculty = student.getFaculty();
+            studentViews.add(new StudentView(student.getId(), student.getName(), student.getAge(), student.getVersion(),
+                    new FacultyView(faculty.getId(), faculty.getName(), faculty.getColor(), faculty.getVersion())));
+        }
+        studentsJson = objectMapper.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public void writeStudents() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), students);
+    }
+
+    @Benchmark
+    public void writeStudentViews() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), studentViews);
+    }
+
+    @Benchmark
+    public void writeStudentViewsBlackbird() throws IOException {
+        blackbirdMapper.writeValue(OutputStream.nullOutputStream(), studentViews);
+    }
+
+    @Benchmark
+    public void writeFaculties() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), faculties);
+    }
+
+    @Benchmark
+    public List<Student> readStudents() throws IOException {
+        return objectMapper.readValue(studentsJson, STUDENT_LIST);
+    }
+}
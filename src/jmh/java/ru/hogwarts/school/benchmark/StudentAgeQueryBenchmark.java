@@ -0,0 +1,63 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.index.StudentAgeIndex;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+
+/**
+ * Страницы {@code /student?age=} и {@code /student?minAge=&maxAge=} с индексом по возрасту в памяти и без него.
+ */
+@State(Scope.Benchmark)
+public class StudentAgeQueryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    private int students;
+
+    @Param({"false", "true"})
+    private boolean ageIndex;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = EmbeddedSchool.start("students.age-index.enabled=" + ageIndex);
+        EmbeddedSchool.seed(context, students);
+        // Студенты добавлены в обход JPA, поэтому индекс заполняется заново
+        context.getBean(StudentAgeIndex.class).load();
+        studentService = context.getBean(StudentService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public KeysetPage<StudentView> byAge() {
+        return studentService.findStudentByAge(14, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public KeysetPage<StudentView> byAgeBetween() {
+        return studentService.findByAgeBetween(12, 15, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public KeysetPage<StudentView> byAgeMissing() {
+        return studentService.findStudentByAge(40, null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Запросы репозитория: страницы keyset-пагинации в начале и в середине таблицы, поиск по имени
+ * и потоковое чтение всей таблицы, как при выгрузке.
+ */
+@State(Scope.Benchmark)
+public class StudentRepositoryBenchmark {
+
+    private static final Limit PAGE = Limit.of(51);
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int students;
+
+    private ConfigurableApplicationContext context;
+    private StudentRepository studentRepository;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = EmbeddedSchool.start();
+        EmbeddedSchool.seed(context, students);
+        studentRepository = context.getBean(StudentRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<StudentView> firstPage() {
+        return studentRepository.findViewsAfter(Long.MIN_VALUE, PAGE);
+    }
+
+    @Benchmark
+    public List<StudentView> middlePage() {
+        return studentRepository.findViewsAfter((long) students / 2, PAGE);
+    }
+
+    @Benchmark
+    public List<StudentView> ageRangePage() {
+        return studentRepository.findViewsByAgeBetweenAfter(13, 15, Integer.MIN_VALUE, Long.MIN_VALUE, PAGE);
+    }
+
+    @Benchmark
+    public List<StudentView> facultyPage() {
+        return studentRepository.findViewsByFacultyAfter(2L, Long.MIN_VALUE, PAGE);
+    }
+
+    @Benchmark
+    public Student findByName() {
+        return studentRepository.findByName("Студент " + students / 2);
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<Student> all = studentRepository.streamAll()) {
+                return all.count();
+            }
+        });
+    }
+}
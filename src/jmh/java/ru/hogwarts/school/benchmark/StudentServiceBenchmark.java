@@ -0,0 +1,68 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Агрегаты, которые сервисы считают в базе: среднее, количество, последние записи, самое длинное имя.
+ */
+@State(Scope.Benchmark)
+public class StudentServiceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int students;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private FacultyService facultyService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = EmbeddedSchool.start();
+        EmbeddedSchool.seed(context, students);
+        studentService = context.getBean(StudentService.class);
+        facultyService = context.getBean(FacultyService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public float averageAge() {
+        return studentService.getAverageAge();
+    }
+
+    @Benchmark
+    public double averageAgeOrZero() {
+        return studentService.getAverageAgeWithFindAll();
+    }
+
+    @Benchmark
+    public long countAllStudents() {
+        return studentService.countAllStudents();
+    }
+
+    @Benchmark
+    public List<StudentView> fiveLatestStudents() {
+        return studentService.getFiveLatestStudents();
+    }
+
+    @Benchmark
+    public String longestFacultyName() {
+        return facultyService.getMaxLengthNameFaculty();
+    }
+}
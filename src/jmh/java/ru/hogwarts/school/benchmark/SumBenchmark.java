@@ -0,0 +1,62 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Варианты суммы 1..n, которые раньше сравнивались вручную замерами System.nanoTime()
+ * в {@code StudentService.calculateExample}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SumBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private long n;
+
+    @Benchmark
+    public long boxedStreamLambda() {
+        return Stream.iterate(1L, a -> a + 1L)
+                .limit(n)
+                .reduce(0L, (a, b) -> a + b);
+    }
+
+    @Benchmark
+    public long boxedStreamMethodReference() {
+        return Stream.iterate(1L, a -> a + 1L)
+                .limit(n)
+                .reduce(0L, Long::sum);
+    }
+
+    @Benchmark
+    public long longStreamIterate() {
+        return LongStream.iterate(1, a -> a + 1)
+                .limit(n)
+                .reduce(0L, Long::sum);
+    }
+
+    @Benchmark
+    public long longStreamRange() {
+        return LongStream.rangeClosed(1, n)
+                .sum();
+    }
+
+    @Benchmark
+    public long longStreamRangeParallel() {
+        return LongStream.rangeClosed(1, n)
+                .parallel()
+                .sum();
+    }
+
+    @Benchmark
+    public long closedForm() {
+        return n * (n + 1) / 2;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.hogwarts.school.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Отдача аватара с диска без sendfile: целиком, диапазоном и ответ 304 по ETag.
+ * Лежит в пакете контроллеров, потому что {@link FileResponseWriter} не публичный.
+ */
+@State(Scope.Benchmark)
+public class FileResponseWriterBenchmark {
+
+    private static final String CONTENT_HASH = "benchmark";
+
+    @Param({"1024", "10240", "102400", "1048576"})
+    private int fileSize;
+
+    private final FileResponseWriter writer = new FileResponseWriter(false);
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] payload = new byte[fileSize];
+        new Random(42).nextBytes(payload);
+        file = Files.write(Files.createTempFile("avatar-benchmark", ".png"), payload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fullFile() throws IOException {
+        return write(new MockHttpServletRequest("GET", "/avatar/1/from_file"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse firstHalf() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/1/from_file");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-" + (fileSize / 2 - 1));
+        return write(request);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse notModified() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/1/from_file");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + CONTENT_HASH + "\"");
+        return write(request);
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(file, "image/png", CONTENT_HASH, request, response);
+        return response;
+    }
+}
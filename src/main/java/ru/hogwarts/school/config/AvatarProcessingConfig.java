@@ -0,0 +1,33 @@
+package ru.hogwarts.school.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AvatarProcessingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarProcessingConfig.class);
+
+    /**
+     * Ограниченный пул для обработки изображений. Если очередь переполнена, задача отбрасывается:
+     * ее запись в avatar_outbox останется и будет взята снова, а пока превью нет, клиент получает оригинал.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor avatarProcessingExecutor(@Value("${avatars.processing.pool-size:2}") int poolSize,
+                                                           @Value("${avatars.processing.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("avatar-processing-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Avatar processing queue is full, task rejected"));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.hogwarts.school.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Заменяет рефлексивные вызовы геттеров и конструкторов на сгенерированные через LambdaMetafactory.
+     * Spring Boot регистрирует бины Module в общем ObjectMapper сам. Сравнение — в {@code SerializationBenchmark}.
+     */
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.hogwarts.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.hogwarts.school.metrics.StatementCountInterceptor;
+import ru.hogwarts.school.metrics.StatementCounter;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCounter());
+    }
+
+    /**
+     * Объявлен бином, а не через implements WebMvcConfigurer, чтобы не попадать в срезы @WebMvcTest без MeterRegistry.
+     */
+    @Bean
+    public WebMvcConfigurer statementCountConfigurer(MeterRegistry meterRegistry,
+                                                     @Value("${metrics.statements.warn-threshold:20}") long warnThreshold) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new StatementCountInterceptor(meterRegistry, warnThreshold));
+            }
+        };
+    }
+}
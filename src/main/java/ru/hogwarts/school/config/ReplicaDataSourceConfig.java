@@ -0,0 +1,82 @@
+package ru.hogwarts.school.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.hogwarts.school.datasource.ReadWriteRoutingDataSource;
+import ru.hogwarts.school.datasource.Replica;
+import ru.hogwarts.school.datasource.ReplicaLagMonitor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение из реплик PostgreSQL. Включается списком {@code datasource.replica.urls} через запятую;
+ * без него остается единственный источник из {@code spring.datasource.*}.
+ * Основная база по-прежнему настраивается через {@code spring.datasource.*} и {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Пулы реплик создаются без проверки соединения при старте: недоступная реплика не мешает запуску,
+     * а чтение уходит в основную базу, пока реплика не ответит. Реплика, которую не проверяли дольше
+     * двух интервалов проверки, считается недоступной.
+     */
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 DataSourceProperties properties,
+                                                                 @Value("${datasource.replica.urls}") List<String> urls,
+                                                                 @Value("${datasource.replica.pool-size:10}") int poolSize,
+                                                                 @Value("${datasource.replica.lag-check-interval:PT5S}") Duration checkInterval) {
+        List<Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.strip());
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(new Replica(replica.getPoolName(), replica, checkInterval.multipliedBy(2)));
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    /**
+     * Значения по умолчанию заданы явно, чтобы прокси не брал соединение при создании.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(readWriteRoutingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start")
+    public ReplicaLagMonitor replicaLagMonitor(ReadWriteRoutingDataSource readWriteRoutingDataSource,
+                                               @Value("${datasource.replica.max-lag:PT1S}") Duration maxLag,
+                                               @Value("${datasource.replica.lag-check-interval:PT5S}") Duration checkInterval) {
+        return new ReplicaLagMonitor(readWriteRoutingDataSource.getReplicas(), maxLag, checkInterval);
+    }
+}
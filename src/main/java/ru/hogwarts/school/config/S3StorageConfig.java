@@ -0,0 +1,46 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.storage.S3AvatarStorage;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+
+/**
+ * Бэкенд {@code s3}. Для MinIO или LocalStack задается {@code avatars.storage.s3.endpoint},
+ * без ключей доступа используется стандартная цепочка учетных данных AWS.
+ */
+@Configuration
+@ConditionalOnProperty(name = "avatars.storage.s3.bucket")
+public class S3StorageConfig {
+
+    @Bean
+    public S3Client avatarS3Client(@Value("${avatars.storage.s3.endpoint:}") String endpoint,
+                                   @Value("${avatars.storage.s3.region:us-east-1}") String region,
+                                   @Value("${avatars.storage.s3.access-key:}") String accessKey,
+                                   @Value("${avatars.storage.s3.secret-key:}") String secretKey) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(true);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public S3AvatarStorage s3AvatarStorage(S3Client avatarS3Client,
+                                           @Value("${avatars.storage.s3.bucket}") String bucket) {
+        return new S3AvatarStorage(avatarS3Client, bucket);
+    }
+}
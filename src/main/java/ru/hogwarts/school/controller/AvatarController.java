@@ -1,21 +1,27 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.metrics.AvatarMetrics;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.pagination.KeysetPage;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarThumbnailService;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 
 @RestController
@@ -23,41 +29,91 @@ import java.nio.file.Path;
 public class AvatarController {
 
     private final AvatarService avatarService;
+    private final AvatarThumbnailService avatarThumbnailService;
+    private final AvatarMetrics avatarMetrics;
+    private final FileResponseWriter fileResponseWriter;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService,
+                            AvatarThumbnailService avatarThumbnailService,
+                            AvatarMetrics avatarMetrics,
+                            @Value("${avatars.download.non-blocking:true}") boolean nonBlockingDownloads) {
         this.avatarService = avatarService;
+        this.avatarThumbnailService = avatarThumbnailService;
+        this.avatarMetrics = avatarMetrics;
+        this.fileResponseWriter = new FileResponseWriter(nonBlockingDownloads);
     }
 
     @PostMapping(value = "/{studentId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> uploadAvatar(@PathVariable Long studentId, @RequestParam MultipartFile avatar) throws IOException {
         avatarService.uploadAvatar(studentId, avatar);
+        avatarMetrics.recordUpload(avatar.getSize());
         return ResponseEntity.ok().build();
     }
 
-    @GetMapping(value = "/{id}/from_db")
-    public ResponseEntity<byte[]> downloadAvatar(@PathVariable Long id) {
-        Avatar avatar = avatarService.findAvatar(id);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        headers.setContentLength(avatar.getData().length);
-        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(avatar.getData());
-    }
-
-    @GetMapping(value = "/{id}/from_file")
-    public void downloadAvatar(@PathVariable Long id, HttpServletResponse response) throws IOException{
+    /**
+     * Изображение из того бэкенда, где оно сейчас лежит; оба адреса оставлены для совместимости.
+     * С диска файл отдается с поддержкой Range, из остальных бэкендов — потоком целиком.
+     * <p>
+     * Аватар в обработке ({@link AvatarStatus#PENDING}) отдается: оригинал целиком записан и его хеш посчитан
+     * еще при загрузке, превью до конца обработки заменяет оригинал. Аватар, обработка которого не удалась
+     * ({@link AvatarStatus#FAILED}), не отдается ни оригиналом, ни превью: 404.
+     */
+    @GetMapping({"/{id}/from_file", "/{id}/from_db"})
+    public void downloadAvatar(@PathVariable Long id,
+                               @RequestParam(required = false) Integer size,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException{
         Avatar avatar = avatarService.findAvatar(id);
+        if (avatar.getStatus() == AvatarStatus.FAILED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Изображение не прошло обработку");
+            return;
+        }
+        avatarService.recordAccess(avatar.getId());
         Path path = Path.of(avatar.getFilePath());
-        try(InputStream is = Files.newInputStream(path);
-            OutputStream os = response.getOutputStream();) {
-            response.setStatus(200);
+        if (size != null) {
+            if (!avatarThumbnailService.isSupportedSize(size)) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Размер превью должен быть одним из " + AvatarThumbnailService.SIZES);
+                return;
+            }
+            Path thumbnail = avatarThumbnailService.getThumbnailPath(path, size);
+            // Превью всегда на диске. Пока превью не готово, отдаем оригинал.
+            if (Files.exists(thumbnail)) {
+                String etag = avatar.getContentHash() == null ? null : avatar.getContentHash() + "-" + size;
+                avatarMetrics.recordDownload(FileSystemAvatarStorage.NAME,
+                        fileResponseWriter.write(thumbnail, AvatarThumbnailService.MEDIA_TYPE, etag, request, response));
+                return;
+            }
+        }
+        if (FileSystemAvatarStorage.NAME.equals(avatar.getStorage())) {
+            avatarMetrics.recordDownload(FileSystemAvatarStorage.NAME,
+                    fileResponseWriter.write(path, avatar.getMediaType(), avatar.getContentHash(), request, response));
+            return;
+        }
+        String etag = "\"" + avatar.getContentHash() + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+        boolean found = avatarService.readContent(avatar, is -> {
+            response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(avatar.getMediaType());
-            response.setContentLength(avatar.getFileSize().intValue());
-            is.transferTo(os);
+            response.setContentLengthLong(avatar.getFileSize());
+            avatarMetrics.recordDownload(avatar.getStorage(), is.transferTo(response.getOutputStream()));
+        });
+        if (!found) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
+    @GetMapping("/all")
+    public ResponseEntity<List<AvatarInfo>> getAvatars(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limit) {
+        KeysetPage<AvatarInfo> avatars = avatarService.getAvatars(cursor, limit);
+        return ResponseEntity.ok().headers(avatars.headers()).body(avatars.content());
+    }
+
+    @Deprecated
     @GetMapping("/all_pageable")
-    public Page<Avatar> getAllAvatars(@RequestParam Integer page, @RequestParam Integer size) {
+    public Page<AvatarInfo> getAllAvatars(@RequestParam Integer page, @RequestParam Integer size) {
         return avatarService.getAllAvatars(page, size);
     }
 }
@@ -1,20 +1,30 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.service.ExportFormat;
+import ru.hogwarts.school.service.ExportService;
 import ru.hogwarts.school.service.FacultyService;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("faculty")
 public class FacultyController {
     private final FacultyService facultyService;
+    private final ExportService exportService;
 
-    public FacultyController(FacultyService facultyService) {
+    public FacultyController(FacultyService facultyService, ExportService exportService) {
         this.facultyService = facultyService;
+        this.exportService = exportService;
     }
 
     @PostMapping
@@ -24,35 +34,39 @@ public class FacultyController {
     }
 
     @GetMapping("/students_by_faculty")
-    public ResponseEntity<List<Student>> getStudents(@RequestParam String name) {
-        List<Student> students = facultyService.getStudentsByFacultyName(name);
-        if (students.isEmpty()) {
+    public ResponseEntity<List<StudentView>> getStudents(@RequestParam String name,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        KeysetPage<StudentView> students = facultyService.getStudentsByFacultyName(name, cursor, limit);
+        if (students.content().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(students);
+        return ResponseEntity.ok().headers(students.headers()).body(students.content());
     }
 
     @GetMapping
-    public ResponseEntity<List<Faculty>> getFaculties(@RequestParam(required = false) String color,
-                                                      @RequestParam(required = false) String name) {
-        List<Faculty> faculties;
+    public ResponseEntity<List<FacultyView>> getFaculties(@RequestParam(required = false) String color,
+                                                          @RequestParam(required = false) String name,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit) {
+        KeysetPage<FacultyView> faculties;
         if (name != null) {
-            faculties = facultyService.getFacultiesByName(name);
+            faculties = new KeysetPage<>(facultyService.getFacultiesByName(name), null);
         } else if (color != null) {
-            faculties = facultyService.getFacultiesByColor(color);
+            faculties = new KeysetPage<>(facultyService.getFacultiesByColor(color), null);
         } else {
-            faculties = facultyService.getAllFaculties();
+            faculties = facultyService.getAllFaculties(cursor, limit);
         }
 
-        if (faculties.isEmpty()) {
+        if (faculties.content().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(faculties);
+        return ResponseEntity.ok().headers(faculties.headers()).body(faculties.content());
     }
 
     @PutMapping
-    public ResponseEntity<Faculty> updateFaculty(@RequestBody Faculty faculty) {
-        Faculty updatedFaculty = facultyService.updateFaculty(faculty);
+    public ResponseEntity<FacultyView> updateFaculty(@RequestBody Faculty faculty) {
+        FacultyView updatedFaculty = facultyService.updateFaculty(faculty);
         if (updatedFaculty == null) {
             return ResponseEntity.notFound().build();
         }
@@ -60,8 +74,8 @@ public class FacultyController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Faculty> getFacultyById(@PathVariable Long id) {
-        Faculty faculty = facultyService.getFaculty(id);
+    public ResponseEntity<FacultyView> getFacultyById(@PathVariable Long id) {
+        FacultyView faculty = facultyService.getFaculty(id);
         if (faculty == null) {
             return ResponseEntity.notFound().build();
         }
@@ -74,8 +88,22 @@ public class FacultyController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/stats")
+    public List<FacultyStats> getFacultyStats() {
+        return facultyService.getFacultyStats();
+    }
+
     @GetMapping("/max_length")
     public String getMaxLengthNameFaculty(){
         return facultyService.getMaxLengthNameFaculty();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/export")
+    public void exportFaculties(@RequestParam(defaultValue = "ndjson") String format,
+                                HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        response.setContentType(exportFormat.getMediaType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        exportService.exportFaculties(exportFormat, response.getOutputStream());
+    }
+}
@@ -0,0 +1,229 @@
+package ru.hogwarts.school.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Отдает файл с диска с поддержкой условных запросов (ETag / Last-Modified) и одного диапазона байт.
+ * Если контейнер умеет sendfile, копирование делает ядро. Иначе файл читается через AsynchronousFileChannel
+ * и пишется неблокирующим выводом сервлета: поток запроса освобождается сразу, и медленный клиент
+ * не занимает ни поток, ни соединение с базой. В режиме {@code nonBlocking = false} — блокирующий transferTo.
+ */
+class FileResponseWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileResponseWriter.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int ASYNC_BUFFER_SIZE = 64 * 1024;
+    private static final long ASYNC_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final boolean nonBlocking;
+
+    FileResponseWriter(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
+    /**
+     * @return число байт тела ответа: 0 для 304 и 416. При неблокирующей отдаче метод возвращается
+     * до окончания передачи, и это число байт, поставленных в отправку
+     */
+    long write(Path path, String mediaType, String contentHash,
+               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long fileSize = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = contentHash == null ? null : "\"" + contentHash + "\"";
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return 0;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(mediaType);
+
+        long start = 0;
+        long end = fileSize - 1;
+        HttpRange range = requestedRange(request, etag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(fileSize);
+                end = range.getRangeEnd(fileSize);
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return 0;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return length;
+        }
+        if (nonBlocking && request.isAsyncSupported()) {
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(ASYNC_TIMEOUT_MILLIS);
+            // Поток ответа берем у контейнера: обертки Spring MVC поддерживают только блокирующую запись
+            ServletOutputStream os = asyncContext.getResponse().getOutputStream();
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, READ);
+            os.setWriteListener(new AsyncFileCopy(channel, os, asyncContext, start, length));
+            return length;
+        }
+        long remaining = length;
+        try (FileChannel channel = FileChannel.open(path, READ);
+             OutputStream os = response.getOutputStream()) {
+            WritableByteChannel target = Channels.newChannel(os);
+            long position = start;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+        return length - remaining;
+    }
+
+    /**
+     * Несколько диапазонов сразу и битый заголовок Range игнорируем и отдаем файл целиком — так разрешает RFC 9110.
+     */
+    private HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Чередует асинхронное чтение блока из файла и его запись, пока контейнер готов принимать данные.
+     * Когда сокет заполнен, контейнер сам вызовет {@link #onWritePossible()} после освобождения буфера.
+     * Чтение и запись никогда не идут одновременно, поэтому синхронизация не нужна.
+     */
+    static class AsyncFileCopy implements WriteListener, CompletionHandler<Integer, Void> {
+
+        private final AsynchronousFileChannel channel;
+        private final ServletOutputStream os;
+        private final AsyncContext asyncContext;
+        private final ByteBuffer buffer = ByteBuffer.allocate(ASYNC_BUFFER_SIZE);
+        private long position;
+        private long remaining;
+        private boolean filled;
+        private volatile boolean reading;
+
+        AsyncFileCopy(AsynchronousFileChannel channel, ServletOutputStream os, AsyncContext asyncContext,
+                      long start, long length) {
+            this.channel = channel;
+            this.os = os;
+            this.asyncContext = asyncContext;
+            this.position = start;
+            this.remaining = length;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            if (reading) {
+                return;
+            }
+            while (os.isReady()) {
+                if (filled) {
+                    os.write(buffer.array(), buffer.position(), buffer.remaining());
+                    filled = false;
+                } else if (remaining == 0) {
+                    close();
+                    return;
+                } else {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                    reading = true;
+                    channel.read(buffer, position, null, this);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            if (read < 0) {
+                failed(new EOFException("Файл стал короче, чем при начале передачи"), null);
+                return;
+            }
+            buffer.flip();
+            position += read;
+            remaining -= read;
+            filled = true;
+            reading = false;
+            try {
+                onWritePossible();
+            } catch (IOException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        public void failed(Throwable e, Void attachment) {
+            logger.warn("Failed to read file for async response", e);
+            reading = false;
+            close();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            // Обычно клиент закрыл соединение, не дочитав файл
+            logger.debug("Async file response aborted", e);
+            close();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close file channel", e);
+            }
+            asyncContext.complete();
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.ImportResult;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.service.ExportFormat;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("student")
 public class StudentController {
     private final StudentService studentService;
+    private final ExportService exportService;
+    private final StudentImportService studentImportService;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService,
+                             ExportService exportService,
+                             StudentImportService studentImportService) {
         this.studentService = studentService;
+        this.exportService = exportService;
+        this.studentImportService = studentImportService;
     }
 
     @PostMapping
@@ -23,9 +40,38 @@ public class StudentController {
         return ResponseEntity.ok(createdStudent);
     }
 
+    /**
+     * Тело читается потоком, а не через @RequestBody, чтобы большой файл не разбирался в память целиком.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportResult> importStudents(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(studentImportService.importJson(request.getInputStream()));
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<ImportResult> importStudentsCsv(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(studentImportService.importCsv(request.getInputStream()));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<StudentView>> searchStudents(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer limit) {
+        List<StudentView> students = studentService.searchByName(q, limit);
+        if (students.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(students);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<String> autocompleteNames(@RequestParam String q,
+                                          @RequestParam(required = false) Integer limit) {
+        return studentService.autocompleteNames(q, limit);
+    }
+
     @GetMapping("/faculty_by_student")
-    public ResponseEntity<Faculty> getFaculty(@RequestParam String name) {
-        Faculty faculty = studentService.findFacultyByStudentName(name);
+    public ResponseEntity<FacultyView> getFaculty(@RequestParam String name) {
+        FacultyView faculty = studentService.findFacultyByStudentName(name);
         if (faculty == null) {
             return ResponseEntity.notFound().build();
         }
@@ -33,27 +79,29 @@ public class StudentController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Student>> getStudents(@RequestParam(required = false) Integer age,
-                                                     @RequestParam(required = false) Integer minAge,
-                                                     @RequestParam(required = false) Integer maxAge) {
-        List<Student> students;
+    public ResponseEntity<List<StudentView>> getStudents(@RequestParam(required = false) Integer age,
+                                                         @RequestParam(required = false) Integer minAge,
+                                                         @RequestParam(required = false) Integer maxAge,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        KeysetPage<StudentView> students;
         if (age != null) {
-            students = studentService.findStudentByAge(age);
+            students = studentService.findStudentByAge(age, cursor, limit);
         } else if (minAge != null && maxAge != null) {
-            students = studentService.findByAgeBetween(minAge, maxAge);
+            students = studentService.findByAgeBetween(minAge, maxAge, cursor, limit);
         } else {
-            students = studentService.getAllStudents();
+            students = studentService.getAllStudents(cursor, limit);
         }
 
-        if (students.isEmpty()) {
+        if (students.content().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(students);
+        return ResponseEntity.ok().headers(students.headers()).body(students.content());
     }
 
     @PutMapping
-    public ResponseEntity<Student> updateStudent(@RequestBody Student student) {
-        Student updatedStudent = studentService.updateStudent(student);
+    public ResponseEntity<StudentView> updateStudent(@RequestBody Student student) {
+        StudentView updatedStudent = studentService.updateStudent(student);
         if (updatedStudent == null) {
             return ResponseEntity.notFound().build();
         }
@@ -61,8 +109,8 @@ public class StudentController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Student> getStudentById(@PathVariable Long id) {
-        Student student = studentService.getStudent(id);
+    public ResponseEntity<StudentView> getStudentById(@PathVariable Long id) {
+        StudentView student = studentService.getStudent(id);
         if (student == null) {
             return ResponseEntity.notFound().build();
         }
@@ -86,7 +134,7 @@ public class StudentController {
     }
 
     @GetMapping("/five_latest_students")
-    public List<Student> getFiveLatestStudents() {
+    public List<StudentView> getFiveLatestStudents() {
         return studentService.getFiveLatestStudents();
     }
 
@@ -109,4 +157,13 @@ public class StudentController {
     public long calculateExample() {
         return studentService.calculateExample();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/export")
+    public void exportStudents(@RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        response.setContentType(exportFormat.getMediaType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        exportService.exportStudents(exportFormat, response.getOutputStream());
+    }
+}
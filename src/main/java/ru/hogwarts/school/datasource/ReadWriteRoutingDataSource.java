@@ -0,0 +1,84 @@
+package ru.hogwarts.school.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отдает соединения транзакций {@code @Transactional(readOnly = true)} из реплик по кругу,
+ * а все остальные — из основной базы. Реплика пропускается, пока отстает больше допустимого
+ * или не отдает соединение; если подходящей реплики нет, чтение идет в основную базу.
+ * <p>
+ * Признак readOnly выставляется уже после того, как транзакция взяла соединение, поэтому
+ * источник оборачивается в {@code LazyConnectionDataSourceProxy}: физическое соединение
+ * берется при первом запросе, когда признак уже известен.
+ * <p>
+ * Пулы реплик принадлежат этому источнику и закрываются вместе с ним, основная база — нет.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<Replica> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Connection connection = replicaConnection(username, password);
+            if (connection != null) {
+                return connection;
+            }
+            logger.debug("No replica available, reading from primary");
+        }
+        return connect(primary, username, password);
+    }
+
+    private Connection replicaConnection(String username, String password) {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.isAvailable()) {
+                continue;
+            }
+            try {
+                return connect(replica.getDataSource(), username, password);
+            } catch (SQLException e) {
+                replica.markUnavailable(e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.hogwarts.school.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Пул соединений реплики и ее состояние по последней проверке отставания.
+ * До первой проверки реплика считается доступной: отключит ее ошибка соединения или проверка.
+ * Результат проверки действует {@code staleAfter}: если проверки остановились или зависли,
+ * реплика перестает считаться доступной, а не остается такой навсегда.
+ */
+public class Replica {
+
+    private static final Logger logger = LoggerFactory.getLogger(Replica.class);
+
+    private final String name;
+    private final DataSource dataSource;
+    private final Duration staleAfter;
+    private final Clock clock;
+    private volatile boolean available = true;
+    private volatile Duration lag = Duration.ZERO;
+    private volatile Instant checkedAt;
+
+    public Replica(String name, DataSource dataSource, Duration staleAfter) {
+        this(name, dataSource, staleAfter, Clock.systemUTC());
+    }
+
+    Replica(String name, DataSource dataSource, Duration staleAfter, Clock clock) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.staleAfter = staleAfter;
+        this.clock = clock;
+        // Отсчет с создания: до первой проверки реплика доступна, но не дольше staleAfter
+        this.checkedAt = clock.instant();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isAvailable() {
+        return available && !clock.instant().isAfter(checkedAt.plus(staleAfter));
+    }
+
+    /**
+     * Отставание по последней успешной проверке.
+     */
+    public Duration getLag() {
+        return lag;
+    }
+
+    void lagChecked(Duration lag, Duration maxLag) {
+        this.lag = lag;
+        this.checkedAt = clock.instant();
+        boolean withinLimit = lag.compareTo(maxLag) <= 0;
+        if (withinLimit != available) {
+            if (withinLimit) {
+                logger.info("Replica {} is back, lag {} ms", name, lag.toMillis());
+            } else {
+                logger.warn("Replica {} lags {} ms behind primary, reads go elsewhere", name, lag.toMillis());
+            }
+        }
+        available = withinLimit;
+    }
+
+    void markUnavailable(Exception cause) {
+        if (available) {
+            logger.warn("Replica {} is unavailable, reads go elsewhere", name, cause);
+        }
+        available = false;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.hogwarts.school.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Раз в {@code datasource.replica.lag-check-interval} замеряет отставание каждой реплики
+ * и отключает те, что отстают больше {@code datasource.replica.max-lag} или не отвечают.
+ * Проверки идут в собственном потоке: общий планировщик занят другими задачами, и проверка,
+ * ждущая в его очереди, отставала бы сама.
+ * <p>
+ * Если реплика проиграла все полученные записи, отставание нулевое, даже когда последняя транзакция была давно:
+ * иначе простаивающая основная база выглядела бы как отставание. Сервер не в режиме восстановления
+ * (например, вторая независимая база для локальной проверки) считается не отстающим.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    static final String LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(List<Replica> replicas, Duration maxLag, Duration interval) {
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.interval = interval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public void check() {
+        for (Replica replica : replicas) {
+            try {
+                Double seconds = new JdbcTemplate(replica.getDataSource()).queryForObject(LAG_QUERY, Double.class);
+                replica.lagChecked(Duration.ofMillis(Math.round((seconds == null ? 0 : seconds) * 1000)), maxLag);
+            } catch (DataAccessException e) {
+                replica.markUnavailable(e);
+            }
+        }
+    }
+
+    /**
+     * Исключение, вышедшее из задачи, отменило бы все следующие проверки.
+     */
+    private void checkQuietly() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            logger.warn("Replica lag check failed", e);
+        }
+    }
+}
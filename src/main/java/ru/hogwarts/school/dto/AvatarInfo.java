@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.AvatarStatus;
+
+public record AvatarInfo(Long id, String filePath, Long fileSize, String mediaType, String contentHash,
+                         AvatarStatus status) {
+}
@@ -0,0 +1,14 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Сводка по факультету. У факультета без студентов возрасты равны null, а счетчики — нулю.
+ */
+public record FacultyStats(Long facultyId,
+                           String name,
+                           String color,
+                           Long studentCount,
+                           Integer minAge,
+                           Double averageAge,
+                           Integer maxAge,
+                           Long studentsWithAvatars) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Факультет в ответах API. Собирается конструкторной проекцией JPQL, без сущности и прокси Hibernate.
+ */
+public record FacultyView(Long id, String name, String color, Long version) {
+}
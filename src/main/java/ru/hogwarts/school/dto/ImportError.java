@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * @param row номер записи во входных данных, начиная с 1 (заголовок CSV не считается)
+ */
+public record ImportError(long row, String message) {
+}
@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * Итог пакетной загрузки. В {@code errors} попадают только первые ошибки, общее число — в {@code failed}.
+ */
+public record ImportResult(long imported, long failed, List<ImportError> errors) {
+}
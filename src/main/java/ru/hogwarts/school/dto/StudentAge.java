@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Пара (id, возраст) студента для заполнения индекса по возрасту без загрузки сущностей.
+ */
+public record StudentAge(Long id, int age) {
+}
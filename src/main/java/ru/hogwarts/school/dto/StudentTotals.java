@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Число студентов и сумма их возрастов одним запросом, для сверки {@code StudentStatistics} с базой.
+ */
+public record StudentTotals(long count, long ageSum) {
+}
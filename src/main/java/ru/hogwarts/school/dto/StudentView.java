@@ -0,0 +1,17 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Студент в ответах API, в том же JSON, что и сущность {@code Student}. Неизменяемый,
+ * поэтому безопасно хранится в кеше и отдается нескольким запросам одновременно.
+ */
+public record StudentView(Long id, String name, int age, Long version, FacultyView faculty) {
+
+    /**
+     * Для конструкторной проекции JPQL: факультет приходит колонками LEFT JOIN и равен null, если его нет.
+     */
+    public StudentView(Long id, String name, int age, Long version,
+                       Long facultyId, String facultyName, String facultyColor, Long facultyVersion) {
+        this(id, name, age, version,
+                facultyId == null ? null : new FacultyView(facultyId, facultyName, facultyColor, facultyVersion));
+    }
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ImportFormatException extends RuntimeException {
+
+    public ImportFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(Long id) {
+        super("Запись " + id + " уже изменена другим запросом.");
+    }
+}
@@ -0,0 +1,68 @@
+package ru.hogwarts.school.index;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Изменения одной транзакции, которые применяются к структуре в памяти только после коммита:
+ * откаченные изменения в нее не попадают. Изменения вне транзакции применяются сразу.
+ * Буфер транзакции привязан к ресурсу {@link TransactionSynchronizationManager} с ключом — этим объектом.
+ *
+ * @param <T> накопленные изменения, например множество имен или счетчики
+ */
+final class AfterCommitBuffer<T> {
+
+    private final Supplier<T> factory;
+    private final Consumer<T> apply;
+
+    /**
+     * @param factory пустой набор изменений для новой транзакции
+     * @param apply   применяет накопленные изменения после коммита
+     */
+    AfterCommitBuffer(Supplier<T> factory, Consumer<T> apply) {
+        this.factory = factory;
+        this.apply = apply;
+    }
+
+    /**
+     * Добавляет изменение в набор текущей транзакции, а без транзакции — сразу применяет его.
+     */
+    void record(Consumer<T> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            T changes = factory.get();
+            change.accept(changes);
+            apply.accept(changes);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending(factory.get());
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        change.accept(pending.changes);
+    }
+
+    private final class Pending implements TransactionSynchronization {
+
+        private final T changes;
+
+        Pending(T changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public void afterCommit() {
+            apply.accept(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AfterCommitBuffer.this);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentAge;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Индекс возраст → id студентов в памяти процесса. Для каждого встречающегося возраста хранится
+ * отсортированный массив id, возрасты без студентов места не занимают,
+ * поэтому страница {@code /student?age=} и {@code /student?minAge=&maxAge=} находится двоичным поиском,
+ * а из базы читаются только сами студенты по первичному ключу. Пустая страница отдается без запроса к базе.
+ * <p>
+ * Включается свойством {@code students.age-index.enabled}. Заполняется при старте приложения, затем
+ * обновляется {@link StudentIndexListener} после коммита транзакций, изменивших студентов.
+ * Опубликованные массивы не изменяются: запись копирует затронутые корзины под {@link ReentrantLock},
+ * чтение работает со снимком без блокировок.
+ */
+@Component
+public class StudentAgeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentAgeIndex.class);
+
+    private static final long[] EMPTY = new long[0];
+
+    private final boolean enabled;
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AfterCommitBuffer<PendingChanges> pendingChanges = new AfterCommitBuffer<>(PendingChanges::new, this::apply);
+
+    private volatile NavigableMap<Integer, long[]> buckets = Collections.emptyNavigableMap();
+    // Изменения, закоммиченные во время загрузки: применяются к загруженному снимку перед публикацией
+    private List<PendingChanges> loading;
+    private volatile boolean ready;
+
+    public StudentAgeIndex(@Value("${students.age-index.enabled:false}") boolean enabled,
+                           StudentRepository studentRepository,
+                           TransactionTemplate transactionTemplate) {
+        this.enabled = enabled;
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Индекс заполнен и отвечает на запросы. До этого сервис читает студентов по возрасту из базы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Заполняет индекс одним проходом по (age, id) в порядке индекса student_age_id_index.
+     * Выборка читается без блокировки. Изменения, закоммиченные в это время, копятся отдельно и применяются
+     * к снимку перед публикацией; повторное применение уже попавших в выборку изменений ничего не меняет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            loading = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Builder builder = new Builder();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<StudentAge> rows = studentRepository.streamAges()) {
+                    rows.forEach(row -> builder.append(row.age(), row.id()));
+                }
+            });
+            NavigableMap<Integer, long[]> loaded = builder.build();
+            lock.lock();
+            try {
+                for (PendingChanges changes : loading) {
+                    loaded = applyTo(loaded, changes);
+                }
+                buckets = loaded;
+                ready = true;
+            } finally {
+                lock.unlock();
+            }
+            logger.info("Student age index loaded: {} students in {} ms",
+                    builder.count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            lock.lock();
+            try {
+                loading = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Id студентов указанного возраста после {@code afterId} по возрастанию, не больше {@code limit}.
+     */
+    public long[] findIds(int age, long afterId, int limit) {
+        long[] bucket = buckets.get(age);
+        if (bucket == null) {
+            return EMPTY;
+        }
+        int from = positionAfter(bucket, afterId);
+        return Arrays.copyOfRange(bucket, from, Math.min(bucket.length, from + limit));
+    }
+
+    /**
+     * Пары (id, возраст) студентов с возрастом от {@code minAge} до {@code maxAge} в порядке (age, id),
+     * начиная строго после пары ({@code afterAge}, {@code afterId}), не больше {@code limit}.
+     * Возраст — ключ индекса: по нему строится курсор следующей страницы.
+     */
+    public List<StudentAge> findBetween(int minAge, int maxAge, int afterAge, long afterId, int limit) {
+        int first = Math.max(minAge, afterAge);
+        if (first > maxAge) {
+            return List.of();
+        }
+        List<StudentAge> result = new ArrayList<>(limit);
+        for (Map.Entry<Integer, long[]> entry : buckets.subMap(first, true, maxAge, true).entrySet()) {
+            long[] bucket = entry.getValue();
+            int from = entry.getKey() == afterAge ? positionAfter(bucket, afterId) : 0;
+            for (int i = from; i < bucket.length; i++) {
+                if (result.size() == limit) {
+                    return result;
+                }
+                result.add(new StudentAge(bucket[i], entry.getKey()));
+            }
+        }
+        return result;
+    }
+
+    void studentSaved(long id, int age, boolean created) {
+        record(id, age, created);
+    }
+
+    void studentRemoved(long id) {
+        record(id, null, false);
+    }
+
+    /**
+     * Новый возраст после JPQL UPDATE в {@code StudentService}: слушатели сущности такой запрос не видят.
+     */
+    public void studentUpdated(long id, int age) {
+        record(id, age, false);
+    }
+
+    private void record(long id, Integer age, boolean created) {
+        if (enabled) {
+            pendingChanges.record(changes -> changes.add(id, age, created));
+        }
+    }
+
+    private void apply(PendingChanges changes) {
+        lock.lock();
+        try {
+            if (loading != null) {
+                loading.add(changes);
+            }
+            if (ready) {
+                buckets = applyTo(buckets, changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Новый снимок: {@code current} с изменениями одной транзакции, затронутые корзины скопированы.
+     */
+    private static NavigableMap<Integer, long[]> applyTo(NavigableMap<Integer, long[]> current, PendingChanges changes) {
+        Map<Integer, Set<Long>> added = new HashMap<>();
+        Map<Integer, Set<Long>> removed = new HashMap<>();
+        for (Map.Entry<Long, Integer> change : changes.ages.entrySet()) {
+            long id = change.getKey();
+            if (!changes.created.contains(id)) {
+                // Прежний возраст неизвестен: ищем id во всех корзинах, их столько, сколько разных возрастов
+                for (Map.Entry<Integer, long[]> bucket : current.entrySet()) {
+                    if (Arrays.binarySearch(bucket.getValue(), id) >= 0) {
+                        removed.computeIfAbsent(bucket.getKey(), key -> new TreeSet<>()).add(id);
+                    }
+                }
+            }
+            Integer age = change.getValue();
+            if (age != null && age >= 0) {
+                added.computeIfAbsent(age, key -> new TreeSet<>()).add(id);
+            }
+        }
+        NavigableMap<Integer, long[]> next = new TreeMap<>(current);
+        Set<Integer> touched = new HashSet<>(added.keySet());
+        touched.addAll(removed.keySet());
+        for (int age : touched) {
+            long[] bucket = merge(next.getOrDefault(age, EMPTY), toArray(added.get(age)), toArray(removed.get(age)));
+            if (bucket.length == 0) {
+                next.remove(age);
+            } else {
+                next.put(age, bucket);
+            }
+        }
+        return Collections.unmodifiableNavigableMap(next);
+    }
+
+    /**
+     * Сливает отсортированные массивы за один проход: bucket без removed плюс added, без повторов.
+     */
+    static long[] merge(long[] bucket, long[] added, long[] removed) {
+        long[] result = new long[bucket.length + added.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < bucket.length || j < added.length) {
+            long id;
+            if (j == added.length || i < bucket.length && bucket[i] <= added[j]) {
+                id = bucket[i++];
+                while (k < removed.length && removed[k] < id) {
+                    k++;
+                }
+                if (k < removed.length && removed[k] == id) {
+                    continue;
+                }
+            } else {
+                id = added[j++];
+            }
+            if (size == 0 || result[size - 1] != id) {
+                result[size++] = id;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long[] toArray(Set<Long> ids) {
+        return ids == null ? EMPTY : ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static int positionAfter(long[] bucket, long afterId) {
+        int position = Arrays.binarySearch(bucket, afterId);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Изменения одной транзакции, см. {@link AfterCommitBuffer}.
+     */
+    private static final class PendingChanges {
+
+        // null — студент удален
+        private final Map<Long, Integer> ages = new LinkedHashMap<>();
+        // Новые студенты: их не нужно искать в старых корзинах
+        private final Set<Long> created = new HashSet<>();
+
+        void add(long id, Integer age, boolean isNew) {
+            ages.put(id, age);
+            if (isNew) {
+                created.add(id);
+            }
+        }
+    }
+
+    /**
+     * Собирает корзины из строк, отсортированных по (age, id): id дописываются в корзину текущего возраста,
+     * при смене возраста она закрывается.
+     */
+    private static final class Builder {
+
+        private final NavigableMap<Integer, long[]> buckets = new TreeMap<>();
+        private long[] bucket = new long[16];
+        private int age;
+        private int size;
+        private long count;
+
+        void append(int age, long id) {
+            if (age < 0) {
+                // Отрицательный возраст не ищется: сервис отвечает на такие запросы пустым списком
+                return;
+            }
+            if (age != this.age) {
+                flush();
+                this.age = age;
+            }
+            if (size == bucket.length) {
+                bucket = Arrays.copyOf(bucket, size * 2);
+            }
+            bucket[size++] = id;
+            count++;
+        }
+
+        NavigableMap<Integer, long[]> build() {
+            flush();
+            return Collections.unmodifiableNavigableMap(buckets);
+        }
+
+        private void flush() {
+            if (size > 0) {
+                buckets.put(age, Arrays.copyOf(bucket, size));
+                size = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.hogwarts.school.index;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.hogwarts.school.model.Student;
+
+/**
+ * Передает изменения студентов в индексы и статистику в памяти. Экземпляр создает Spring по запросу Hibernate,
+ * индексы берутся через {@link ObjectProvider}: они зависят от репозитория, которого при создании
+ * EntityManagerFactory еще нет.
+ */
+public class StudentIndexListener {
+
+    private final ObjectProvider<StudentAgeIndex> studentAgeIndex;
+    private final ObjectProvider<StudentNameIndex> studentNameIndex;
+    private final ObjectProvider<StudentStatistics> studentStatistics;
+
+    public StudentIndexListener(ObjectProvider<StudentAgeIndex> studentAgeIndex,
+                                ObjectProvider<StudentNameIndex> studentNameIndex,
+                                ObjectProvider<StudentStatistics> studentStatistics) {
+        this.studentAgeIndex = studentAgeIndex;
+        this.studentNameIndex = studentNameIndex;
+        this.studentStatistics = studentStatistics;
+    }
+
+    @PostPersist
+    public void onPersist(Student student) {
+        studentAgeIndex.getObject().studentSaved(student.getId(), student.getAge(), true);
+        studentNameIndex.getObject().studentNamed(student.getName());
+        studentStatistics.getObject().studentCreated(student.getId(), student.getAge());
+    }
+
+    @PostUpdate
+    public void onUpdate(Student student) {
+        studentAgeIndex.getObject().studentSaved(student.getId(), student.getAge(), false);
+        studentNameIndex.getObject().studentNamed(student.getName());
+        studentStatistics.getObject().studentChanged(student.getId());
+    }
+
+    @PostRemove
+    public void onRemove(Student student) {
+        studentAgeIndex.getObject().studentRemoved(student.getId());
+        studentStatistics.getObject().studentRemoved(student.getId(), student.getAge());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Различные имена студентов в упорядоченном множестве для автодополнения. Ключ — имя в нижнем регистре
+ * и исходное имя через {@code \0}, поэтому первые k имен с префиксом — это k шагов по skip-list
+ * от позиции префикса: O(log n + k) без обращения к базе.
+ * <p>
+ * Включается свойством {@code students.autocomplete.enabled}. Новые имена добавляются
+ * {@link StudentIndexListener} после коммита. Удаленные и переименованные студенты остаются в подсказках
+ * до полной перестройки раз в {@code students.autocomplete.refresh-interval}: имя может быть и у других
+ * студентов, а для подсказок небольшая задержка допустима.
+ */
+@Component
+public class StudentNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentNameIndex.class);
+
+    private static final char SEPARATOR = '\0';
+
+    private final boolean enabled;
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Object lock = new Object();
+    private final AfterCommitBuffer<Set<String>> pendingNames = new AfterCommitBuffer<>(HashSet::new, this::add);
+
+    private volatile NavigableSet<String> names = new ConcurrentSkipListSet<>();
+    // Множество, которое сейчас строится загрузкой: новые имена попадают и в него
+    private NavigableSet<String> loading;
+    private volatile boolean ready;
+
+    public StudentNameIndex(@Value("${students.autocomplete.enabled:false}") boolean enabled,
+                            StudentRepository studentRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.enabled = enabled;
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${students.autocomplete.refresh-interval:PT10M}",
+            initialDelayString = "${students.autocomplete.refresh-interval:PT10M}")
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        NavigableSet<String> next = new ConcurrentSkipListSet<>();
+        synchronized (lock) {
+            loading = next;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> rows = studentRepository.streamDistinctNames()) {
+                    rows.forEach(name -> next.add(key(name)));
+                }
+            });
+            synchronized (lock) {
+                names = next;
+                ready = true;
+            }
+        } finally {
+            synchronized (lock) {
+                loading = null;
+            }
+        }
+        logger.info("Student name index loaded: {} names in {} ms",
+                next.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Первые {@code limit} различных имен, начинающихся с {@code prefix} без учета регистра, по алфавиту.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>(limit);
+        for (String key : names.tailSet(lowerPrefix, true)) {
+            if (result.size() == limit || !key.startsWith(lowerPrefix)) {
+                break;
+            }
+            result.add(key.substring(key.indexOf(SEPARATOR) + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет имя после коммита текущей транзакции. Вызывают {@link StudentIndexListener} при сохранении
+     * сущности и {@code StudentService} после JPQL UPDATE, который слушатель не видит.
+     */
+    public void studentNamed(String name) {
+        if (enabled && name != null) {
+            pendingNames.record(names -> names.add(name));
+        }
+    }
+
+    private void add(Set<String> added) {
+        synchronized (lock) {
+            for (String name : added) {
+                String key = key(name);
+                names.add(key);
+                if (loading != null) {
+                    loading.add(key);
+                }
+            }
+        }
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT) + SEPARATOR + name;
+    }
+}
@@ -0,0 +1,247 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.StudentTotals;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Число студентов, сумма их возрастов и пять последних студентов в памяти процесса:
+ * {@code /student/count}, {@code /student/average_age} и {@code /student/five_latest_students}
+ * отвечают без запросов к базе.
+ * <p>
+ * Включается свойством {@code students.statistics.enabled}. Заполняется при старте приложения, затем
+ * {@link StudentIndexListener} и {@code StudentService} передают изменения после коммита транзакций.
+ * Счетчики — {@link LongAdder}: запись и чтение без блокировок. Список последних студентов
+ * перечитывается из базы одним запросом при первом чтении после изменения, которое его затронуло.
+ * Запросы к базе идут под {@link ReentrantLock}, а не монитором: виртуальный поток, ждущий базу или
+ * блокировку, не занимает поток-носитель.
+ * <p>
+ * Изменения других экземпляров приложения и расхождения, например от транзакций, закоммиченных во время
+ * загрузки, исправляет сверка с базой раз в {@code students.statistics.reconcile-interval}.
+ */
+@Component
+public class StudentStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentStatistics.class);
+
+    static final int LATEST_SIZE = 5;
+
+    private final boolean enabled;
+    private final StudentRepository studentRepository;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder ageSum = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AfterCommitBuffer<PendingChanges> pendingChanges = new AfterCommitBuffer<>(PendingChanges::new, this::apply);
+
+    private volatile List<StudentView> latest = List.of();
+    private volatile boolean latestStale;
+    private volatile boolean ageSumStale;
+    private volatile boolean ready;
+
+    public StudentStatistics(@Value("${students.statistics.enabled:false}") boolean enabled,
+                             StudentRepository studentRepository) {
+        this.enabled = enabled;
+        this.studentRepository = studentRepository;
+    }
+
+    /**
+     * Статистика заполнена и отвечает на запросы. До этого сервис считает ее запросами к базе.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        reconcileTotals();
+        latestStale = true;
+        ready = true;
+        logger.info("Student statistics loaded: {} students in {} ms",
+                count.sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Сверяет счетчики с базой и помечает список последних студентов для перечитывания.
+     */
+    @Scheduled(fixedDelayString = "${students.statistics.reconcile-interval:PT5M}",
+            initialDelayString = "${students.statistics.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        reconcileTotals();
+        latestStale = true;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double averageAge() {
+        if (ageSumStale) {
+            reconcileTotals();
+        }
+        long students = count.sum();
+        return students == 0 ? 0 : (double) ageSum.sum() / students;
+    }
+
+    /**
+     * До {@value #LATEST_SIZE} студентов с наибольшими id, по убыванию id.
+     */
+    public List<StudentView> latest() {
+        if (latestStale) {
+            lock.lock();
+            try {
+                if (latestStale) {
+                    // Сбрасывается до запроса: изменение, пришедшее во время чтения, пометит список снова
+                    latestStale = false;
+                    try {
+                        latest = studentRepository.findFiveLatestViews();
+                    } catch (RuntimeException e) {
+                        latestStale = true;
+                        throw e;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return latest;
+    }
+
+    void studentCreated(long id, int age) {
+        record(changes -> {
+            changes.count++;
+            changes.ageSum += age;
+            changes.created.add(id);
+        });
+    }
+
+    void studentRemoved(long id, int age) {
+        record(changes -> {
+            changes.count--;
+            changes.ageSum -= age;
+            changes.touched.add(id);
+        });
+    }
+
+    /**
+     * Изменение через сущность: прежний возраст неизвестен, сумма возрастов будет сверена с базой при следующем чтении.
+     */
+    void studentChanged(long id) {
+        record(changes -> {
+            changes.ageSumStale = true;
+            changes.touched.add(id);
+        });
+    }
+
+    /**
+     * Изменение через JPQL UPDATE в {@code StudentService}: слушатели сущности его не видят,
+     * зато сервис знает прежний возраст и сумма поправляется без сверки.
+     *
+     * @param previousAge возраст до изменения, прочитанный под блокировкой строки, или null, если он неизвестен
+     */
+    public void studentUpdated(long id, Integer previousAge, int age) {
+        record(changes -> {
+            if (previousAge == null) {
+                changes.ageSumStale = true;
+            } else {
+                changes.ageSum += age - previousAge;
+            }
+            changes.touched.add(id);
+        });
+    }
+
+    /**
+     * Факультет переименован или удален: последние студенты этого факультета будут перечитаны после коммита.
+     */
+    public void facultyChanged(long facultyId) {
+        record(changes -> changes.faculties.add(facultyId));
+    }
+
+    private void record(Consumer<PendingChanges> change) {
+        if (enabled) {
+            pendingChanges.record(change);
+        }
+    }
+
+    private void apply(PendingChanges changes) {
+        if (!ready) {
+            // Статистика еще не загружена: загрузка прочитает это изменение из базы
+            return;
+        }
+        count.add(changes.count);
+        ageSum.add(changes.ageSum);
+        if (changes.ageSumStale) {
+            ageSumStale = true;
+        }
+        List<StudentView> snapshot = latest;
+        long lowestId = snapshot.isEmpty() ? Long.MIN_VALUE : snapshot.get(snapshot.size() - 1).id();
+        boolean affectsLatest = changes.created.stream().anyMatch(id -> snapshot.size() < LATEST_SIZE || id > lowestId)
+                || snapshot.stream().anyMatch(student -> changes.touched.contains(student.id())
+                || student.faculty() != null && changes.faculties.contains(student.faculty().id()));
+        if (affectsLatest) {
+            latestStale = true;
+        }
+    }
+
+    /**
+     * Счетчики не обнуляются, а сдвигаются на расхождение с базой: изменения, применяемые параллельно, не теряются.
+     * Расхождение может дать только изменение, закоммиченное между запросом и сдвигом; его исправит следующая сверка.
+     */
+    private void reconcileTotals() {
+        lock.lock();
+        try {
+            ageSumStale = false;
+            StudentTotals totals;
+            try {
+                totals = studentRepository.getTotals();
+            } catch (RuntimeException e) {
+                ageSumStale = true;
+                throw e;
+            }
+            long countDrift = totals.count() - count.sum();
+            long ageSumDrift = totals.ageSum() - ageSum.sum();
+            count.add(countDrift);
+            ageSum.add(ageSumDrift);
+            if (ready && (countDrift != 0 || ageSumDrift != 0)) {
+                logger.debug("Student statistics corrected by {} students and {} years of age", countDrift, ageSumDrift);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Изменения одной транзакции, см. {@link AfterCommitBuffer}.
+     */
+    private static final class PendingChanges {
+
+        private long count;
+        private long ageSum;
+        private boolean ageSumStale;
+        // Новые студенты могут вытеснить кого-то из последних, измененные и удаленные — устареть в списке
+        private final Set<Long> created = new HashSet<>();
+        private final Set<Long> touched = new HashSet<>();
+        // Переименованные и удаленные факультеты: их название в списке последних студентов устарело
+        private final Set<Long> faculties = new HashSet<>();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Объем принятых и отданных изображений. Отдача помечается источником — именем бэкенда: file, db, s3.
+ */
+@Component
+public class AvatarMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Counter bytesIn;
+    private final Map<String, Counter> bytesOut = new ConcurrentHashMap<>();
+
+    public AvatarMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.bytesIn = Counter.builder("avatar.bytes.in")
+                .description("Avatar bytes received in uploads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter bytesOut(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("avatar.bytes.out")
+                .description("Avatar bytes sent in downloads")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public void recordUpload(long bytes) {
+        bytesIn.increment(bytes);
+    }
+
+    public void recordDownload(String source, long bytes) {
+        bytesOut.computeIfAbsent(source, key -> bytesOut(meterRegistry, key)).increment(bytes);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Записывает, сколько SQL-запросов выполнил каждый HTTP-запрос, в метрику {@code hibernate.statements.per.request}
+ * с теми же тегами method и uri, что у {@code http.server.requests}. Рост p99 по эндпоинту обычно означает N+1.
+ * Для асинхронных ответов счет закрывается в момент ухода из потока запроса: дальше запросов к базе нет.
+ */
+public class StatementCountInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final long warnThreshold;
+
+    public StatementCountInterceptor(MeterRegistry meterRegistry, long warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        record(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        record(request);
+    }
+
+    private void record(HttpServletRequest request) {
+        long statements = StatementCounter.current();
+        StatementCounter.clear();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("hibernate.statements.per.request")
+                .description("SQL statements prepared while handling one HTTP request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(statements);
+        if (statements > warnThreshold) {
+            logger.warn("{} {} executed {} SQL statements", request.getMethod(), uri, statements);
+        }
+    }
+}
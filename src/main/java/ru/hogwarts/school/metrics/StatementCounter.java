@@ -0,0 +1,30 @@
+package ru.hogwarts.school.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы, которые Hibernate подготовил в текущем потоке.
+ * Счетчик обнуляет и читает {@link StatementCountInterceptor} на границах HTTP-запроса.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    static long current() {
+        return COUNT.get()[0];
+    }
+
+    static void clear() {
+        COUNT.remove();
+    }
+}
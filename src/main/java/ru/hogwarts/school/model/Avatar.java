@@ -2,26 +2,33 @@ package ru.hogwarts.school.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
 
-import java.util.Arrays;
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
 public class Avatar {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "avatar_seq")
+    @SequenceGenerator(name = "avatar_seq", sequenceName = "avatar_seq", allocationSize = 50)
     private Long id;
 
     private String filePath;
     private Long fileSize;
     private String mediaType;
+    private String contentHash;
 
-    @Lob
-    @JsonIgnore
-    private byte[] data;
+    @Enumerated(EnumType.STRING)
+    private AvatarStatus status = AvatarStatus.PENDING;
+
+    // Бэкенд с содержимым, см. AvatarStorage. Загрузка всегда сначала попадает на диск
+    private String storage = FileSystemAvatarStorage.NAME;
 
-    @OneToOne
+    private Instant lastAccessedAt;
+
+    @OneToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     @JoinColumn(name = "student_id")
     private Student student;
@@ -29,12 +36,11 @@ public class Avatar {
     public Avatar() {
     }
 
-    public Avatar(Long id, String filePath, Long fileSize, String mediaType, byte[] data, Student student) {
+    public Avatar(Long id, String filePath, Long fileSize, String mediaType, Student student) {
         this.id = id;
         this.filePath = filePath;
         this.fileSize = fileSize;
         this.mediaType = mediaType;
-        this.data = data;
         this.student = student;
     }
 
@@ -70,12 +76,36 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public AvatarStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AvatarStatus status) {
+        this.status = status;
+    }
+
+    public String getStorage() {
+        return storage;
+    }
+
+    public void setStorage(String storage) {
+        this.storage = storage;
+    }
+
+    public Instant getLastAccessedAt() {
+        return lastAccessedAt;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setLastAccessedAt(Instant lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
     }
 
     public Student getStudent() {
@@ -90,12 +120,12 @@ public class Avatar {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Avatar avatar = (Avatar) o;
-        return Objects.equals(id, avatar.id) && Objects.equals(filePath, avatar.filePath) && Objects.equals(fileSize, avatar.fileSize) && Objects.equals(mediaType, avatar.mediaType) && Objects.deepEquals(data, avatar.data) && Objects.equals(student, avatar.student);
+        return Objects.equals(id, avatar.id) && Objects.equals(filePath, avatar.filePath) && Objects.equals(fileSize, avatar.fileSize) && Objects.equals(mediaType, avatar.mediaType) && Objects.equals(contentHash, avatar.contentHash) && status == avatar.status && Objects.equals(storage, avatar.storage);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, filePath, fileSize, mediaType, Arrays.hashCode(data), student);
+        return Objects.hash(id, filePath, fileSize, mediaType, contentHash, status, storage);
     }
 
     @Override
@@ -105,8 +135,10 @@ public class Avatar {
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
-                ", data=" + Arrays.toString(data) +
-                ", student=" + student +
+                ", contentHash='" + contentHash + '\'' +
+                ", status=" + status +
+                ", storage='" + storage + '\'' +
+                ", studentId=" + (student == null ? null : student.getId()) +
                 '}';
     }
 }
@@ -0,0 +1,77 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+import java.sql.Blob;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Содержимое изображения в базе, большой объект PostgreSQL. Ключ — SHA-256 содержимого,
+ * поэтому одинаковые изображения хранятся один раз, как и в файловом хранилище.
+ * {@code touchedAt} обновляется при каждой записи того же содержимого, как время изменения файла на диске.
+ */
+@Entity
+@Table(name = "avatar_blob")
+public class AvatarBlob {
+
+    @Id
+    private String contentHash;
+
+    @Lob
+    private Blob data;
+
+    private Instant touchedAt;
+
+    public AvatarBlob() {
+    }
+
+    public AvatarBlob(String contentHash, Blob data, Instant touchedAt) {
+        this.contentHash = contentHash;
+        this.data = data;
+        this.touchedAt = touchedAt;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Blob getData() {
+        return data;
+    }
+
+    public void setData(Blob data) {
+        this.data = data;
+    }
+
+    public Instant getTouchedAt() {
+        return touchedAt;
+    }
+
+    public void setTouchedAt(Instant touchedAt) {
+        this.touchedAt = touchedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarBlob that = (AvatarBlob) o;
+        return Objects.equals(contentHash, that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(contentHash);
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarBlob{" +
+                "contentHash='" + contentHash + '\'' +
+                '}';
+    }
+}
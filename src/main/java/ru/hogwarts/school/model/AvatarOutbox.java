@@ -0,0 +1,109 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Задача на обработку загруженного аватара. Пишется в одной транзакции с {@link Avatar},
+ * поэтому задача не теряется ни при откате загрузки, ни при перезапуске приложения.
+ * Пока задачу обрабатывают, {@code availableAt} сдвинут на время аренды: если обработчик упал,
+ * задачу возьмут снова, когда аренда истечет.
+ */
+@Entity
+@Table(name = "avatar_outbox")
+public class AvatarOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "avatar_outbox_seq")
+    @SequenceGenerator(name = "avatar_outbox_seq", sequenceName = "avatar_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    private Long avatarId;
+    private String contentHash;
+    private int attempts;
+    private Instant availableAt;
+    private Instant createdAt;
+
+    public AvatarOutbox() {
+    }
+
+    public AvatarOutbox(Long avatarId, String contentHash, Instant createdAt) {
+        this.avatarId = avatarId;
+        this.contentHash = contentHash;
+        this.availableAt = createdAt;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAvatarId() {
+        return avatarId;
+    }
+
+    public void setAvatarId(Long avatarId) {
+        this.avatarId = avatarId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(Instant availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarOutbox that = (AvatarOutbox) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarOutbox{" +
+                "id=" + id +
+                ", avatarId=" + avatarId +
+                ", contentHash='" + contentHash + '\'' +
+                ", attempts=" + attempts +
+                ", availableAt=" + availableAt +
+                '}';
+    }
+}
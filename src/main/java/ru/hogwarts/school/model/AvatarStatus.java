@@ -0,0 +1,16 @@
+package ru.hogwarts.school.model;
+
+/**
+ * Состояние обработки аватара после загрузки.
+ */
+public enum AvatarStatus {
+    /**
+     * Файл сохранен, обработка в очереди: превью может еще не быть, отдается оригинал.
+     */
+    PENDING,
+    READY,
+    /**
+     * Обработка не удалась после всех попыток.
+     */
+    FAILED
+}
@@ -10,12 +10,16 @@ import java.util.Objects;
 @Entity
 public class Faculty {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "faculty_seq")
+    @SequenceGenerator(name = "faculty_seq", sequenceName = "faculty_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private String color;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "faculty")
     @JsonIgnore
     private Collection<Student> students;
@@ -53,6 +57,14 @@ public class Faculty {
         this.color = color;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Collection<Student> getStudents() {
         return students;
     }
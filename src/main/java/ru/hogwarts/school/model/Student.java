@@ -1,20 +1,26 @@
 package ru.hogwarts.school.model;
 
 import jakarta.persistence.*;
+import ru.hogwarts.school.index.StudentIndexListener;
 
 import java.util.Objects;
 
 @Entity
+@EntityListeners(StudentIndexListener.class)
 public class Student {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private int age;
 
-    @ManyToOne
+    @Version
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
 
@@ -55,6 +61,14 @@ public class Student {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Faculty getFaculty() {
         return faculty;
     }
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.pagination;
+
+import ru.hogwarts.school.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Позиция в keyset-выборке: значения ключей сортировки последней отданной строки.
+ * Для клиента это непрозрачная строка в base64url.
+ */
+public record Cursor(long[] keys) {
+
+    private static final String SEPARATOR = ":";
+
+    public static Cursor of(long... keys) {
+        return new Cursor(keys);
+    }
+
+    public static Cursor decode(String token, int expectedKeys) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            long[] keys = Arrays.stream(decoded.split(SEPARATOR))
+                    .mapToLong(Long::parseLong)
+                    .toArray();
+            if (keys.length != expectedKeys) {
+                throw new InvalidCursorException(token);
+            }
+            return new Cursor(keys);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public long key(int index) {
+        return keys[index];
+    }
+
+    public String encode() {
+        String joined = String.join(SEPARATOR, Arrays.stream(keys).mapToObj(Long::toString).toList());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+}
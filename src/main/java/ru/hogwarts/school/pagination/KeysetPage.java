@@ -0,0 +1,57 @@
+package ru.hogwarts.school.pagination;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset-пагинации.
+ *
+ * @param nextCursor непрозрачный токен следующей страницы или null, если страница последняя
+ */
+public record KeysetPage<T>(List<T> content, String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static <T> KeysetPage<T> empty() {
+        return new KeysetPage<>(List.of(), null);
+    }
+
+    /**
+     * Собирает страницу из выборки размером limit + 1: лишняя строка лишь показывает, что есть продолжение.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, limit);
+        return new KeysetPage<>(List.copyOf(content), cursorOf.apply(content.get(limit - 1)).encode());
+    }
+
+    /**
+     * Собирает страницу по limit + 1 ключам из индекса в памяти, строки загружает {@code load}.
+     * Продолжение и курсор определяются по ключам индекса, а не по загруженным строкам: строка, которой
+     * в базе нет или в которой другой ключ (например, на отстающей реплике), не обрывает и не сдвигает выдачу.
+     */
+    public static <K, T> KeysetPage<T> ofKeys(List<K> keys, int limit, Function<K, Cursor> cursorOf,
+                                              Function<List<K>, List<T>> load) {
+        if (keys.size() <= limit) {
+            return new KeysetPage<>(load.apply(keys), null);
+        }
+        List<K> pageKeys = keys.subList(0, limit);
+        return new KeysetPage<>(load.apply(pageKeys), cursorOf.apply(pageKeys.get(limit - 1)).encode());
+    }
+
+    /**
+     * Заголовки ответа: токен следующей страницы передается в {@value #NEXT_CURSOR_HEADER},
+     * чтобы тело ответа осталось прежним JSON-массивом.
+     */
+    public HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            headers.set(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.hogwarts.school.pagination;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PageLimits {
+
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public PageLimits(@Value("${pagination.default-page-size:50}") int defaultPageSize,
+                      @Value("${pagination.max-page-size:500}") int maxPageSize) {
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Размер страницы с учетом значения по умолчанию и верхней границы.
+     */
+    public int resolve(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
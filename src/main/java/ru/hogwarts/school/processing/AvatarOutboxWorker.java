@@ -0,0 +1,123 @@
+package ru.hogwarts.school.processing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.repository.AvatarOutboxRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Разбирает {@code avatar_outbox} пачками и выполняет {@link AvatarProcessingStage} в ограниченном пуле
+ * {@code avatarProcessingExecutor}. Задачи захватываются короткой транзакцией с SKIP LOCKED и арендой:
+ * несколько экземпляров приложения не берут одну задачу дважды, а задача упавшего экземпляра
+ * вернется в очередь, когда аренда истечет. Берется не больше задач, чем свободно мест в очереди пула.
+ */
+@Component
+public class AvatarOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarOutboxWorker.class);
+
+    private final AvatarOutboxRepository avatarOutboxRepository;
+    private final AvatarRepository avatarRepository;
+    private final ContentAddressedFileStore contentAddressedFileStore;
+    private final List<AvatarProcessingStage> stages;
+    private final ThreadPoolTaskExecutor avatarProcessingExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${avatars.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${avatars.outbox.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${avatars.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${avatars.outbox.retry-delay:PT30S}")
+    private Duration retryDelay;
+
+    public AvatarOutboxWorker(AvatarOutboxRepository avatarOutboxRepository,
+                              AvatarRepository avatarRepository,
+                              ContentAddressedFileStore contentAddressedFileStore,
+                              List<AvatarProcessingStage> stages,
+                              ThreadPoolTaskExecutor avatarProcessingExecutor,
+                              TransactionTemplate transactionTemplate) {
+        this.avatarOutboxRepository = avatarOutboxRepository;
+        this.avatarRepository = avatarRepository;
+        this.contentAddressedFileStore = contentAddressedFileStore;
+        this.stages = stages;
+        this.avatarProcessingExecutor = avatarProcessingExecutor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.outbox.poll-interval:PT1S}")
+    public void poll() {
+        int capacity = Math.min(batchSize, avatarProcessingExecutor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        if (capacity == 0) {
+            return;
+        }
+        List<AvatarOutbox> tasks = transactionTemplate.execute(status -> claim(capacity));
+        for (AvatarOutbox task : tasks) {
+            // Если пул все же отклонит задачу, она вернется в очередь по истечении аренды
+            avatarProcessingExecutor.execute(() -> process(task));
+        }
+        if (!tasks.isEmpty()) {
+            logger.debug("Claimed {} avatar processing tasks", tasks.size());
+        }
+    }
+
+    private List<AvatarOutbox> claim(int limit) {
+        Instant now = Instant.now();
+        List<AvatarOutbox> tasks = avatarOutboxRepository.findAvailable(now, Limit.of(limit));
+        for (AvatarOutbox task : tasks) {
+            task.setAttempts(task.getAttempts() + 1);
+            task.setAvailableAt(now.plus(lease));
+        }
+        return tasks;
+    }
+
+    void process(AvatarOutbox task) {
+        if (!avatarRepository.existsByIdAndContentHash(task.getAvatarId(), task.getContentHash())) {
+            // Аватар удален или заменен новым файлом, для которого есть своя задача
+            avatarOutboxRepository.deleteById(task.getId());
+            return;
+        }
+        try {
+            Path file = contentAddressedFileStore.resolve(task.getContentHash());
+            for (AvatarProcessingStage stage : stages) {
+                stage.process(task, file);
+            }
+            complete(task, AvatarStatus.READY);
+            logger.debug("Avatar {} processed", task.getAvatarId());
+        } catch (IOException | RuntimeException e) {
+            if (task.getAttempts() >= maxAttempts) {
+                complete(task, AvatarStatus.FAILED);
+                logger.error("Avatar {} processing failed after {} attempts", task.getAvatarId(), task.getAttempts(), e);
+            } else {
+                avatarOutboxRepository.reschedule(task.getId(), Instant.now().plus(retryDelay.multipliedBy(task.getAttempts())));
+                logger.warn("Avatar {} processing failed, attempt {} of {}", task.getAvatarId(), task.getAttempts(), maxAttempts, e);
+            }
+        }
+    }
+
+    private void complete(AvatarOutbox task, AvatarStatus status) {
+        transactionTemplate.executeWithoutResult(transaction -> {
+            avatarRepository.updateStatus(task.getAvatarId(), task.getContentHash(), status);
+            avatarOutboxRepository.deleteById(task.getId());
+        });
+    }
+}
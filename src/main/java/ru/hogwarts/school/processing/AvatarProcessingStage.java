@@ -0,0 +1,19 @@
+package ru.hogwarts.school.processing;
+
+import ru.hogwarts.school.model.AvatarOutbox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Этап обработки загруженного аватара. Этапы выполняются по порядку {@link org.springframework.core.annotation.Order}
+ * в пуле обработки, вне запроса на загрузку. После сбоя задача повторяется целиком, поэтому этап
+ * должен быть идемпотентным.
+ */
+public interface AvatarProcessingStage {
+
+    /**
+     * @param file загруженный файл, соответствующий {@code task.getContentHash()}
+     */
+    void process(AvatarOutbox task, Path file) throws IOException;
+}
@@ -0,0 +1,31 @@
+package ru.hogwarts.school.processing;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Проверка содержимого перед остальной обработкой: хеш файла должен совпадать с записанным при загрузке.
+ * Место для антивирусной проверки и других проверок, которым нужен весь файл.
+ */
+@Component
+@Order(1)
+public class ContentVerificationStage implements AvatarProcessingStage {
+
+    private final ContentAddressedFileStore contentAddressedFileStore;
+
+    public ContentVerificationStage(ContentAddressedFileStore contentAddressedFileStore) {
+        this.contentAddressedFileStore = contentAddressedFileStore;
+    }
+
+    @Override
+    public void process(AvatarOutbox task, Path file) throws IOException {
+        if (!contentAddressedFileStore.verify(task.getContentHash())) {
+            throw new IOException("Content of " + file + " does not match its hash");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.hogwarts.school.processing;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.service.AvatarStorageService;
+import ru.hogwarts.school.storage.AvatarStorages;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Перенос в основной бэкенд {@code avatars.storage.primary}, если это не диск. Выполняется последним:
+ * проверке и превью нужен локальный файл. Оригинал на диске потом удалит сборщик мусора хранилища.
+ */
+@Component
+@Order(3)
+public class StorageStage implements AvatarProcessingStage {
+
+    private final AvatarStorages avatarStorages;
+    private final AvatarStorageService avatarStorageService;
+
+    public StorageStage(AvatarStorages avatarStorages, AvatarStorageService avatarStorageService) {
+        this.avatarStorages = avatarStorages;
+        this.avatarStorageService = avatarStorageService;
+    }
+
+    @Override
+    public void process(AvatarOutbox task, Path file) throws IOException {
+        String primary = avatarStorages.primary();
+        if (!FileSystemAvatarStorage.NAME.equals(primary)) {
+            avatarStorageService.move(task.getAvatarId(), task.getContentHash(), FileSystemAvatarStorage.NAME, primary);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.hogwarts.school.processing;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.service.AvatarThumbnailService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Превью всех размеров. Одинаковые файлы хранятся один раз, поэтому готовые превью не пересчитываются.
+ */
+@Component
+@Order(2)
+public class ThumbnailStage implements AvatarProcessingStage {
+
+    private final AvatarThumbnailService avatarThumbnailService;
+
+    public ThumbnailStage(AvatarThumbnailService avatarThumbnailService) {
+        this.avatarThumbnailService = avatarThumbnailService;
+    }
+
+    @Override
+    public void process(AvatarOutbox task, Path file) throws IOException {
+        if (!avatarThumbnailService.hasThumbnails(file)) {
+            avatarThumbnailService.generateThumbnails(file);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.AvatarBlob;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface AvatarBlobRepository extends JpaRepository<AvatarBlob, String> {
+
+    /**
+     * Освобождает большой объект: удаление строки из avatar_blob его не удаляет. Вызывать внутри транзакции.
+     */
+    @Query(value = "SELECT lo_unlink(data) FROM avatar_blob WHERE content_hash = :contentHash", nativeQuery = true)
+    List<Integer> unlinkData(@Param("contentHash") String contentHash);
+
+    /**
+     * Отмечает повторную запись того же содержимого. Вызывать внутри транзакции.
+     *
+     * @return 0, если содержимого нет
+     */
+    @Modifying
+    @Query("UPDATE AvatarBlob b SET b.touchedAt = :touchedAt WHERE b.contentHash = :contentHash")
+    int touch(@Param("contentHash") String contentHash, @Param("touchedAt") Instant touchedAt);
+
+    @Query("SELECT b.contentHash FROM AvatarBlob b WHERE b.touchedAt < :olderThan AND b.contentHash > :after " +
+            "ORDER BY b.contentHash")
+    List<String> findContentHashesTouchedBefore(@Param("olderThan") Instant olderThan,
+                                                @Param("after") String after,
+                                                Limit limit);
+
+    /**
+     * Блокирует строку до конца транзакции, если содержимое не записывалось с момента {@code olderThan}.
+     * Запись того же содержимого ждет блокировку в {@link #touch}, поэтому не может сослаться на удаляемое.
+     */
+    @Query(value = "SELECT content_hash FROM avatar_blob WHERE content_hash = :contentHash AND touched_at < :olderThan " +
+            "FOR UPDATE", nativeQuery = true)
+    Optional<String> lockIfTouchedBefore(@Param("contentHash") String contentHash, @Param("olderThan") Instant olderThan);
+}
@@ -0,0 +1,34 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.AvatarOutbox;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AvatarOutboxRepository extends JpaRepository<AvatarOutbox, Long> {
+
+    /**
+     * Доступные задачи с блокировкой строк. Таймаут -2 — это SKIP LOCKED: строки, которые уже захватил
+     * другой обработчик, пропускаются, а не ждут его коммита. Вызывать внутри транзакции.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT t FROM AvatarOutbox t WHERE t.availableAt <= :now ORDER BY t.availableAt, t.id")
+    List<AvatarOutbox> findAvailable(@Param("now") Instant now, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AvatarOutbox t SET t.availableAt = :availableAt WHERE t.id = :id")
+    int reschedule(@Param("id") Long id, @Param("availableAt") Instant availableAt);
+}
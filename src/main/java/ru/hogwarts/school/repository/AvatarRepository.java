@@ -1,11 +1,83 @@
 package ru.hogwarts.school.repository;
 
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AvatarInfo;
+import org.springframework.transaction.annotation.Transactional;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStatus;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
     Optional<Avatar> findByStudentId(Long studentId);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT new ru.hogwarts.school.dto.AvatarInfo(a.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.status) FROM Avatar a",
+            countQuery = "SELECT count(a) FROM Avatar a")
+    Page<AvatarInfo> findAllInfo(Pageable pageable);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarInfo(a.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.status) " +
+            "FROM Avatar a WHERE a.id > :id ORDER BY a.id")
+    List<AvatarInfo> findInfoAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT DISTINCT a.contentHash FROM Avatar a WHERE a.contentHash IN :contentHashes")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    @Query("SELECT DISTINCT a.contentHash FROM Avatar a WHERE a.contentHash IN :contentHashes AND a.storage = :storage")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes,
+                                             @Param("storage") String storage);
+
+    boolean existsByIdAndContentHash(Long id, String contentHash);
+
+    boolean existsByContentHashAndStorage(String contentHash, String storage);
+
+    /**
+     * Готовые изображения в бэкенде {@code storage}, которые не запрашивались с момента {@code before}.
+     * Аватары, загруженные до хранилища по хешу, не переносятся: их файлов нет в {@link ru.hogwarts.school.storage.ContentAddressedFileStore}.
+     */
+    @Query("SELECT a FROM Avatar a WHERE a.storage = :storage AND a.status = ru.hogwarts.school.model.AvatarStatus.READY " +
+            "AND a.contentHash IS NOT NULL AND a.lastAccessedAt < :before ORDER BY a.lastAccessedAt")
+    List<Avatar> findColdIn(@Param("storage") String storage, @Param("before") Instant before, Limit limit);
+
+    /**
+     * Изображения в бэкенде {@code storage}, которые запрашивались начиная с {@code since}.
+     */
+    @Query("SELECT a FROM Avatar a WHERE a.storage = :storage AND a.lastAccessedAt >= :since ORDER BY a.lastAccessedAt DESC")
+    List<Avatar> findHotIn(@Param("storage") String storage, @Param("since") Instant since, Limit limit);
+
+    /**
+     * Переключает бэкенд, только если содержимое и прежний бэкенд не изменились, пока шел перенос.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Avatar a SET a.storage = :to WHERE a.id = :id AND a.contentHash = :contentHash AND a.storage = :from")
+    int updateStorage(@Param("id") Long id,
+                      @Param("contentHash") String contentHash,
+                      @Param("from") String from,
+                      @Param("to") String to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Avatar a SET a.lastAccessedAt = :accessedAt WHERE a.id IN :ids")
+    int updateLastAccessedAt(@Param("ids") Collection<Long> ids, @Param("accessedAt") Instant accessedAt);
+
+    /**
+     * Меняет статус, только если у аватара все то же содержимое: результат обработки старого файла
+     * не должен перезаписать статус файла, загруженного после него.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Avatar a SET a.status = :status WHERE a.id = :id AND a.contentHash = :contentHash")
+    int updateStatus(@Param("id") Long id,
+                     @Param("contentHash") String contentHash,
+                     @Param("status") AvatarStatus status);
+}
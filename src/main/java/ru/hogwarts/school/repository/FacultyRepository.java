@@ -1,15 +1,90 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.FacultyView;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+/**
+ * Чтение для ответов API идет конструкторной проекцией {@link FacultyView}, без сущностей в контексте.
+ */
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
-    List<Faculty> findAllByNameIgnoreCase(String name);
 
-    List<Faculty> findAllByColorIgnoreCase(String color);
+    String SELECT_VIEW = "SELECT new ru.hogwarts.school.dto.FacultyView(f.id, f.name, f.color, f.version) FROM Faculty f ";
+
+    /**
+     * Всегда в основной базе, см. {@link StudentRepository#existsById(Long)}.
+     */
+    @Override
+    @Transactional
+    boolean existsById(Long id);
+
+    @Query(SELECT_VIEW + "WHERE f.id = :id")
+    Optional<FacultyView> findViewById(@Param("id") Long id);
+
+    /**
+     * Сравнение по upper(name) и upper(color), как в IgnoreCase-методах Spring Data:
+     * его обслуживают функциональные индексы faculty_name_upper_index и faculty_color_upper_index.
+     */
+    @Query(SELECT_VIEW + "WHERE upper(f.name) = upper(:name)")
+    List<FacultyView> findViewsByNameIgnoreCase(@Param("name") String name);
+
+    @Query(SELECT_VIEW + "WHERE upper(f.color) = upper(:color)")
+    List<FacultyView> findViewsByColorIgnoreCase(@Param("color") String color);
 
     Optional<Faculty> findByNameIgnoreCase(String name);
+
+    @Query(SELECT_VIEW + "WHERE f.id > :id ORDER BY f.id")
+    List<FacultyView> findViewsAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT f.id FROM Faculty f")
+    Set<Long> findAllIds();
+
+    /**
+     * Статистика всех факультетов одним запросом с группировкой, как в scripts423.sql.
+     * У студента не больше одного аватара, поэтому count(a.id) — число студентов с аватаром.
+     */
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyStats(f.id, f.name, f.color, " +
+            "count(s.id), min(s.age), avg(s.age), max(s.age), count(a.id)) " +
+            "FROM Faculty f LEFT JOIN f.students s LEFT JOIN Avatar a ON a.student = s " +
+            "GROUP BY f.id, f.name, f.color ORDER BY f.id")
+    List<FacultyStats> findFacultyStats();
+
+    @Query("SELECT f.name FROM Faculty f ORDER BY length(f.name) DESC LIMIT 1")
+    Optional<String> findLongestName();
+
+    /**
+     * Обновляет факультет одним запросом без предварительного SELECT.
+     * Если передана версия, запись обновляется только при совпадении версии (оптимистическая блокировка).
+     *
+     * @return число обновленных строк: 0, если факультета нет или версия устарела
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Faculty f SET f.name = :name, f.color = :color, f.version = f.version + 1 " +
+            "WHERE f.id = :id AND (:version IS NULL OR f.version = :version)")
+    int update(@Param("id") Long id,
+               @Param("name") String name,
+               @Param("color") String color,
+               @Param("version") Long version);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT f FROM Faculty f ORDER BY f.id")
+    Stream<Faculty> streamAll();
 }
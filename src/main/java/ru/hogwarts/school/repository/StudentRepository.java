@@ -1,29 +1,159 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentAge;
+import ru.hogwarts.school.dto.StudentTotals;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Факультет студента загружается лениво. Чтение для ответов API идет конструкторной проекцией
+ * {@link StudentView}: студент и его факультет приходят одним запросом с LEFT JOIN, без сущностей в контексте.
+ */
 public interface StudentRepository extends JpaRepository<Student, Long> {
-    List<Student> findAllByAge(int age);
 
-    List<Student> findByAgeBetween(int minAge, int maxAge);
+    String SELECT_VIEW = "SELECT new ru.hogwarts.school.dto.StudentView(s.id, s.name, s.age, s.version, " +
+            "f.id, f.name, f.color, f.version) FROM Student s LEFT JOIN s.faculty f ";
 
-    List<Student> findAllByFaculty_Id(Long id);
+    /**
+     * Проверка перед записью должна видеть последние изменения, поэтому всегда идет в основную базу:
+     * без readOnly транзакция не уходит в реплику.
+     */
+    @Override
+    @Transactional
+    boolean existsById(Long id);
+
+    @Query(SELECT_VIEW + "WHERE s.id = :id")
+    Optional<StudentView> findViewById(@Param("id") Long id);
+
+    @Query(SELECT_VIEW + "WHERE s.id IN :ids")
+    List<StudentView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_VIEW + "WHERE s.id > :id ORDER BY s.id")
+    List<StudentView> findViewsAfter(@Param("id") Long id, Limit limit);
+
+    @Query(SELECT_VIEW + "WHERE s.age = :age AND s.id > :id ORDER BY s.id")
+    List<StudentView> findViewsByAgeAfter(@Param("age") int age, @Param("id") Long id, Limit limit);
+
+    @Query(SELECT_VIEW + "WHERE s.faculty.id = :facultyId AND s.id > :id ORDER BY s.id")
+    List<StudentView> findViewsByFacultyAfter(@Param("facultyId") Long facultyId, @Param("id") Long id, Limit limit);
+
+    /**
+     * Keyset-выборка по паре (age, id): следующая страница начинается строго после строки (age, id).
+     */
+    @Query(SELECT_VIEW + "WHERE s.age BETWEEN :minAge AND :maxAge " +
+            "AND (s.age > :age OR (s.age = :age AND s.id > :id)) ORDER BY s.age, s.id")
+    List<StudentView> findViewsByAgeBetweenAfter(@Param("minAge") int minAge,
+                                                 @Param("maxAge") int maxAge,
+                                                 @Param("age") int age,
+                                                 @Param("id") Long id,
+                                                 Limit limit);
 
     Student findByName(String name);
 
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyView(f.id, f.name, f.color, f.version) " +
+            "FROM Student s JOIN s.faculty f WHERE s.name = :name")
+    Optional<FacultyView> findFacultyViewByStudentName(@Param("name") String name);
+
+    /**
+     * Поиск по имени без учета регистра. Условие по lower(name) обслуживается индексами
+     * student_name_lower_trgm_index (подстрока) и student_name_lower_pattern_index (префикс).
+     * Сначала идут имена, начинающиеся с запроса.
+     *
+     * @param pattern шаблон LIKE в нижнем регистре, экранирование символом !
+     * @param prefix  шаблон префикса в том же виде
+     */
+    @Query(SELECT_VIEW + "WHERE lower(s.name) LIKE :pattern ESCAPE '!' " +
+            "ORDER BY CASE WHEN lower(s.name) LIKE :prefix ESCAPE '!' THEN 0 ELSE 1 END, s.name, s.id")
+    List<StudentView> searchByName(@Param("pattern") String pattern, @Param("prefix") String prefix, Limit limit);
+
+    @Query("SELECT DISTINCT s.name FROM Student s WHERE lower(s.name) LIKE :pattern ESCAPE '!' ORDER BY s.name")
+    List<String> findDistinctNamesByPattern(@Param("pattern") String pattern, Limit limit);
+
     @Query("SELECT count(*) FROM Student")
     long countAllStudents();
 
     @Query("SELECT avg(age) FROM Student")
     float getAverageAge();
 
-    @Query("SELECT s FROM Student as s ORDER BY s.id DESC LIMIT 5")
-    List<Student> getFiveLatestStudents();
+    @Query(SELECT_VIEW + "ORDER BY s.id DESC LIMIT 5")
+    List<StudentView> findFiveLatestViews();
+
+    @Query("SELECT coalesce(avg(s.age), 0.0) FROM Student s")
+    double getAverageAgeOrZero();
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentTotals(count(s), coalesce(sum(s.age), 0L)) FROM Student s")
+    StudentTotals getTotals();
+
+    /**
+     * Возраст с блокировкой строки до конца транзакции: параллельное обновление без версии дождется ее,
+     * и прежний возраст останется верным до UPDATE в той же транзакции.
+     */
+    @Query(value = "SELECT age FROM student WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Integer> findAgeByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Первые слова имен, начинающихся с префикса. Условие LIKE 'префикс%' обслуживается индексом
+     * student_name_pattern_index, поэтому читаются только подходящие строки.
+     *
+     * @param pattern шаблон LIKE с экранированными символами % и _
+     */
+    @Query(value = "SELECT split_part(name, ' ', 1) FROM student WHERE name LIKE :pattern ESCAPE '\\'",
+            nativeQuery = true)
+    List<String> findFirstNamesByPattern(@Param("pattern") String pattern);
+
+    /**
+     * Обновляет студента одним запросом без предварительного SELECT.
+     * Если передана версия, запись обновляется только при совпадении версии (оптимистическая блокировка).
+     *
+     * @return число обновленных строк: 0, если студента нет или версия устарела
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Student s SET s.name = :name, s.age = :age, s.faculty = :faculty, s.version = s.version + 1 " +
+            "WHERE s.id = :id AND (:version IS NULL OR s.version = :version)")
+    int update(@Param("id") Long id,
+               @Param("name") String name,
+               @Param("age") int age,
+               @Param("faculty") Faculty faculty,
+               @Param("version") Long version);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.faculty ORDER BY s.id")
+    Stream<Student> streamAll();
+
+    /**
+     * Все пары (id, возраст) в порядке индекса student_age_id_index, для заполнения {@code StudentAgeIndex}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new ru.hogwarts.school.dto.StudentAge(s.id, s.age) FROM Student s ORDER BY s.age, s.id")
+    Stream<StudentAge> streamAges();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT DISTINCT s.name FROM Student s")
+    Stream<String> streamDistinctNames();
 }
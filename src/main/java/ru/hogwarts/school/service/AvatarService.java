@@ -1,81 +1,159 @@
 package ru.hogwarts.school.service;
 
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.function.ThrowingConsumer;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.exception.StudentNotFoundException;
 import ru.hogwarts.school.model.Avatar;
-import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.pagination.Cursor;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.pagination.PageLimits;
+import ru.hogwarts.school.repository.AvatarOutboxRepository;
 import ru.hogwarts.school.repository.AvatarRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.storage.AvatarStorages;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+import ru.hogwarts.school.storage.StoredFile;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
 
+/**
+ * Файлы пишутся вне транзакций: соединение с базой берется только на короткую запись метаданных.
+ * Вся остальная обработка выполняется асинхронно через {@code avatar_outbox}.
+ */
 @Service
-@Transactional
 public class AvatarService {
 
     private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
 
     private final AvatarRepository avatarRepository;
+    private final AvatarOutboxRepository avatarOutboxRepository;
     private final StudentRepository studentRepository;
+    private final ContentAddressedFileStore contentAddressedFileStore;
+    private final AvatarStorages avatarStorages;
+    private final AvatarStorageService avatarStorageService;
+    private final PageLimits pageLimits;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${path.to.avatars.folder}")
-    private String avatarsDir;
-
-    public AvatarService(AvatarRepository avatarRepository, StudentRepository studentRepository) {
+    public AvatarService(AvatarRepository avatarRepository,
+                         AvatarOutboxRepository avatarOutboxRepository,
+                         StudentRepository studentRepository,
+                         ContentAddressedFileStore contentAddressedFileStore,
+                         AvatarStorages avatarStorages,
+                         AvatarStorageService avatarStorageService,
+                         PageLimits pageLimits,
+                         TransactionTemplate transactionTemplate) {
         this.avatarRepository = avatarRepository;
+        this.avatarOutboxRepository = avatarOutboxRepository;
         this.studentRepository = studentRepository;
+        this.contentAddressedFileStore = contentAddressedFileStore;
+        this.avatarStorages = avatarStorages;
+        this.avatarStorageService = avatarStorageService;
+        this.pageLimits = pageLimits;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    /**
+     * Загрузка в три этапа: проверка студента, запись файла без транзакции и короткая транзакция
+     * с метаданными и задачей на обработку. Если транзакция не зафиксировалась, файл остается сборщику мусора
+     * хранилища: сразу удалять его нельзя, на тот же файл может сослаться параллельная загрузка тех же байт,
+     * транзакция которой еще не закоммичена. Сборщик не трогает файлы моложе {@code avatars.gc.grace-period}.
+     * Превью и перенос в основной бэкенд выполняет {@code AvatarOutboxWorker}, время загрузки от них не зависит.
+     */
+    @CacheEvict(cacheNames = "facultyStats", allEntries = true)
     public void uploadAvatar(Long studentId, MultipartFile avatarFile) throws IOException {
-        Student student = studentRepository.getById(studentId);
-        Path filePath = Path.of(avatarsDir, student + "." + getExtensions(avatarFile.getOriginalFilename()));
-        Files.createDirectories(filePath.getParent());
-        Files.deleteIfExists(filePath);
-        try (
-                InputStream is = avatarFile.getInputStream();
-                OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-                BufferedInputStream bis = new BufferedInputStream(is, 1024);
-                BufferedOutputStream bos = new BufferedOutputStream(os, 1024);
-        ) {
-            bis.transferTo(bos);
-            logger.info("Avatar uploaded successfully");
+        if (!studentRepository.existsById(studentId)) {
+            throw new StudentNotFoundException(studentId);
         }
+        StoredFile storedFile;
+        try (InputStream is = avatarFile.getInputStream()) {
+            storedFile = contentAddressedFileStore.store(is);
+        }
+        transactionTemplate.executeWithoutResult(status -> saveAvatar(studentId, storedFile, avatarFile.getContentType()));
+        logger.info("Avatar uploaded successfully");
+    }
+
+    /**
+     * Прежнее содержимое в другом бэкенде удалит {@code AvatarStorageCleaner}, если на него больше никто не ссылается.
+     */
+    private void saveAvatar(Long studentId, StoredFile storedFile, String mediaType) {
         Avatar avatar = findOrCreateAvatar(studentId);
-        avatar.setStudent(student);
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(avatarFile.getSize());
-        avatar.setMediaType(avatarFile.getContentType());
-        avatar.setData(avatarFile.getBytes());
+        avatar.setStudent(studentRepository.getReferenceById(studentId));
+        avatar.setFilePath(storedFile.path().toString());
+        avatar.setFileSize(storedFile.size());
+        avatar.setMediaType(mediaType);
+        avatar.setContentHash(storedFile.contentHash());
+        avatar.setStatus(AvatarStatus.PENDING);
+        avatar.setStorage(FileSystemAvatarStorage.NAME);
+        avatar.setLastAccessedAt(Instant.now());
         avatarRepository.save(avatar);
+        avatarOutboxRepository.save(new AvatarOutbox(avatar.getId(), storedFile.contentHash(), Instant.now()));
     }
-    private String getExtensions(String fileName) {
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
-    }
+
+    @Transactional(readOnly = true)
     public Avatar findAvatar(Long studentId) {
-        logger.debug("Finding avatar for student: " + studentId);
+        logger.debug("Finding avatar for student: {}", studentId);
         return avatarRepository.findByStudentId(studentId).orElseThrow();
     }
+
+    /**
+     * Передает содержимое изображения из его бэкенда потоком. Поток действителен только внутри вызова.
+     *
+     * @return false, если содержимого в бэкенде нет
+     */
+    public boolean readContent(Avatar avatar, ThrowingConsumer<InputStream> consumer) throws IOException {
+        boolean found = avatarStorages.get(avatar.getStorage()).read(avatar.getContentHash(), consumer);
+        if (!found) {
+            logger.warn("Avatar {} content {} not found in {}", avatar.getId(), avatar.getContentHash(), avatar.getStorage());
+        }
+        return found;
+    }
+
+    public void recordAccess(Long avatarId) {
+        avatarStorageService.recordAccess(avatarId);
+    }
+
     public Avatar findOrCreateAvatar(Long studentId) {
-        logger.info("Finding and create avatar for student: " + studentId);
+        logger.debug("Finding and create avatar for student: {}", studentId);
         return avatarRepository.findByStudentId(studentId).orElse(new Avatar());
     }
 
-    public Page<Avatar> getAllAvatars(Integer page, Integer size) {
+    @Transactional(readOnly = true)
+    public KeysetPage<AvatarInfo> getAvatars(String cursor, Integer limit) {
+        logger.debug("Finding avatars after cursor {}", cursor);
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? Long.MIN_VALUE : Cursor.decode(cursor, 1).key(0);
+        List<AvatarInfo> avatars = avatarRepository.findInfoAfter(afterId, Limit.of(pageSize + 1));
+        return KeysetPage.of(avatars, pageSize, avatar -> Cursor.of(avatar.id()));
+    }
+
+    /**
+     * Постраничная выборка через OFFSET: чем дальше страница, тем дороже запрос.
+     * Оставлена для совместимости, новым клиентам следует использовать {@link #getAvatars(String, Integer)}.
+     */
+    @Deprecated
+    @Transactional(readOnly = true)
+    public Page<AvatarInfo> getAllAvatars(Integer page, Integer size) {
         if (page > 0 && size > 0) {
-            Pageable pageable = PageRequest.of(page - 1, size);
+            Pageable pageable = PageRequest.of(page - 1, pageLimits.resolve(size));
             logger.debug("Finding avatars for student");
-            return avatarRepository.findAll(pageable);
+            return avatarRepository.findAllInfo(pageable);
         }
         logger.error("Page must be > 0 or size must be > 0");
         throw new IllegalArgumentException("Недопустимое значение страницы");
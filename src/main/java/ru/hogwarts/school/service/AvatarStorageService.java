@@ -0,0 +1,157 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.AvatarStorages;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Перенос изображений между бэкендами и распределение по горячему и холодному уровням.
+ * Каждое изображение хранится ровно в одном бэкенде из {@code avatar.storage}; превью всегда остаются на диске.
+ * <p>
+ * Время последнего запроса копится в памяти и пишется в {@code avatar.last_accessed_at} одним UPDATE
+ * раз в {@code avatars.storage.access-flush-interval}: отдача изображения не пишет в базу.
+ * Раз в {@code avatars.storage.tiering.interval} изображения, не запрашиваемые дольше
+ * {@code avatars.storage.cold-after}, переносятся в холодный бэкенд, а снова запрошенные — обратно в основной.
+ */
+@Service
+public class AvatarStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStorageService.class);
+
+    private static final int ACCESS_FLUSH_BATCH_SIZE = 1000;
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarStorages avatarStorages;
+    private final AvatarThumbnailService avatarThumbnailService;
+    private final Set<Long> accessed = ConcurrentHashMap.newKeySet();
+
+    @Value("${avatars.storage.cold-after:P30D}")
+    private Duration coldAfter;
+
+    @Value("${avatars.storage.tiering.batch-size:100}")
+    private int tieringBatchSize;
+
+    public AvatarStorageService(AvatarRepository avatarRepository,
+                                AvatarStorages avatarStorages,
+                                AvatarThumbnailService avatarThumbnailService) {
+        this.avatarRepository = avatarRepository;
+        this.avatarStorages = avatarStorages;
+        this.avatarThumbnailService = avatarThumbnailService;
+    }
+
+    /**
+     * Запоминает запрос изображения. Без холодного бэкенда время запроса не нужно и не отслеживается.
+     */
+    public void recordAccess(Long avatarId) {
+        if (avatarStorages.cold().isPresent()) {
+            accessed.add(avatarId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.storage.access-flush-interval:PT1M}")
+    public void flushAccesses() {
+        if (accessed.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(accessed);
+        accessed.removeAll(ids);
+        Instant now = Instant.now();
+        for (int from = 0; from < ids.size(); from += ACCESS_FLUSH_BATCH_SIZE) {
+            avatarRepository.updateLastAccessedAt(ids.subList(from, Math.min(ids.size(), from + ACCESS_FLUSH_BATCH_SIZE)), now);
+        }
+        logger.debug("Recorded access time of {} avatars", ids.size());
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.storage.tiering.interval:PT1H}",
+            initialDelayString = "${avatars.storage.tiering.interval:PT1H}")
+    public void tier() {
+        Optional<String> cold = avatarStorages.cold();
+        if (cold.isEmpty()) {
+            return;
+        }
+        flushAccesses();
+        String primary = avatarStorages.primary();
+        Instant threshold = Instant.now().minus(coldAfter);
+        int demoted = 0;
+        for (Avatar avatar : avatarRepository.findColdIn(primary, threshold, Limit.of(tieringBatchSize))) {
+            demoted += moveQuietly(avatar, primary, cold.get()) ? 1 : 0;
+        }
+        int promoted = 0;
+        for (Avatar avatar : avatarRepository.findHotIn(cold.get(), threshold, Limit.of(tieringBatchSize))) {
+            promoted += moveQuietly(avatar, cold.get(), primary) ? 1 : 0;
+        }
+        logger.info("Avatar tiering finished: {} moved to {}, {} moved to {}", demoted, cold.get(), promoted, primary);
+    }
+
+    private boolean moveQuietly(Avatar avatar, String from, String to) {
+        try {
+            boolean moved = move(avatar.getId(), avatar.getContentHash(), from, to);
+            if (moved && FileSystemAvatarStorage.NAME.equals(to)) {
+                // Превью нет, если изображение попало в другой бэкенд до того, как обработка их построила
+                Path file = avatarStorages.get(to).localPath(avatar.getContentHash()).orElseThrow();
+                if (!avatarThumbnailService.hasThumbnails(file)) {
+                    avatarThumbnailService.generateThumbnails(file);
+                }
+            }
+            return moved;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to move avatar {} from {} to {}", avatar.getId(), from, to, e);
+            return false;
+        }
+    }
+
+    /**
+     * Копирует содержимое в бэкенд {@code to} и переключает {@code avatar.storage}.
+     * Если за время копирования аватар заменили или перенесли, переключения нет. Содержимое без ссылок
+     * в любом бэкенде удаляют сборщики мусора после срока ожидания, поэтому здесь ничего не удаляется:
+     * проверка ссылок и удаление без блокировки гонялись бы с параллельным переносом того же содержимого.
+     *
+     * @return true, если аватар переключен на {@code to}
+     */
+    public boolean move(Long avatarId, String contentHash, String from, String to) throws IOException {
+        if (from.equals(to)) {
+            return true;
+        }
+        AvatarStorage source = avatarStorages.get(from);
+        AvatarStorage target = avatarStorages.get(to);
+        Optional<Path> localPath = source.localPath(contentHash);
+        if (localPath.isPresent()) {
+            target.put(contentHash, localPath.get());
+        } else {
+            Path tmp = Files.createTempFile("avatar", ".tmp");
+            try {
+                if (!source.read(contentHash, is -> Files.copy(is, tmp, REPLACE_EXISTING))) {
+                    throw new FileNotFoundException("Avatar content " + contentHash + " not found in " + from);
+                }
+                target.put(contentHash, tmp);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        boolean moved = avatarRepository.updateStorage(avatarId, contentHash, from, to) == 1;
+        logger.debug("Avatar {} {} from {} to {}", avatarId, moved ? "moved" : "not moved", from, to);
+        return moved;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+@Service
+public class AvatarThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarThumbnailService.class);
+
+    /**
+     * Размеры превью по убыванию: каждое следующее уменьшается из предыдущего, а не из оригинала.
+     */
+    public static final List<Integer> SIZES = List.of(256, 128, 64);
+    public static final String MEDIA_TYPE = "image/jpeg";
+
+    private static final String FORMAT = "jpg";
+
+    public boolean isSupportedSize(int size) {
+        return SIZES.contains(size);
+    }
+
+    public Path getThumbnailPath(Path original, int size) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(baseName + "_" + size + "." + FORMAT);
+    }
+
+    public boolean hasThumbnails(Path original) {
+        return SIZES.stream().allMatch(size -> Files.exists(getThumbnailPath(original, size)));
+    }
+
+    public void generateThumbnails(Path original) throws IOException {
+        BufferedImage image = ImageIO.read(original.toFile());
+        if (image == null) {
+            logger.warn("Unsupported image format, thumbnails skipped: {}", original);
+            return;
+        }
+        for (int size : SIZES) {
+            image = scaleToFit(image, size);
+            Path target = getThumbnailPath(original, size);
+            Path tmp = Files.createTempFile(target.getParent(), "thumbnail", "." + FORMAT);
+            try {
+                ImageIO.write(image, FORMAT, tmp.toFile());
+                Files.move(tmp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        logger.debug("Thumbnails generated for {}", original);
+    }
+
+    /**
+     * Вписывает изображение в квадрат size x size с сохранением пропорций и без увеличения.
+     * JPEG не поддерживает прозрачность, поэтому фон заливается белым.
+     */
+    private BufferedImage scaleToFit(BufferedImage source, int size) {
+        double scale = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
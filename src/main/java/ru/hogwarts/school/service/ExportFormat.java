@@ -0,0 +1,27 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.exception.UnsupportedExportFormatException;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ExportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ExportFormat fromParameter(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new UnsupportedExportFormatException(value);
+    }
+}
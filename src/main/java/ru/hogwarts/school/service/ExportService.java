@@ -0,0 +1,133 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка таблиц. Строки читаются курсором и пишутся в ответ по мере поступления,
+ * а контекст персистентности периодически очищается, поэтому память не растет с размером таблицы.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter rowWriter;
+
+    public ExportService(StudentRepository studentRepository,
+                         FacultyRepository facultyRepository,
+                         EntityManager entityManager,
+                         ObjectMapper objectMapper) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.entityManager = entityManager;
+        // Переводы строк между записями пишем сами, а сбрасываем буфер раз в CLEAR_INTERVAL строк, а не после каждой.
+        this.rowWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    @Transactional(readOnly = true)
+    public void exportStudents(ExportFormat format, OutputStream os) throws IOException {
+        logger.debug("Exporting students as {}", format);
+        try (Stream<Student> students = studentRepository.streamAll()) {
+            export(students, format, os, List.of("id", "name", "age", "faculty_id"),
+                    student -> Arrays.asList(student.getId(), student.getName(), student.getAge(),
+                            student.getFaculty() == null ? null : student.getFaculty().getId()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportFaculties(ExportFormat format, OutputStream os) throws IOException {
+        logger.debug("Exporting faculties as {}", format);
+        try (Stream<Faculty> faculties = facultyRepository.streamAll()) {
+            export(faculties, format, os, List.of("id", "name", "color"),
+                    faculty -> Arrays.asList(faculty.getId(), faculty.getName(), faculty.getColor()));
+        }
+    }
+
+    private <T> void export(Stream<T> rows, ExportFormat format, OutputStream os,
+                            List<String> csvHeader, Function<T, List<Object>> csvColumns) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeCsv(rows, os, csvHeader, csvColumns);
+        } else {
+            writeNdjson(rows, os);
+        }
+    }
+
+    private <T> void writeNdjson(Stream<T> rows, OutputStream os) throws IOException {
+        try (JsonGenerator generator = rowWriter.createGenerator(os)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long count = 0;
+            for (T row : (Iterable<T>) rows::iterator) {
+                rowWriter.writeValue(generator, row);
+                generator.writeRaw('\n');
+                if (++count % CLEAR_INTERVAL == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private <T> void writeCsv(Stream<T> rows, OutputStream os,
+                              List<String> header, Function<T, List<Object>> columns) throws IOException {
+        Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        writeCsvLine(writer, header);
+        long count = 0;
+        for (T row : (Iterable<T>) rows::iterator) {
+            writeCsvLine(writer, columns.apply(row));
+            if (++count % CLEAR_INTERVAL == 0) {
+                writer.flush();
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -2,16 +2,26 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.VersionConflictException;
+import ru.hogwarts.school.index.StudentStatistics;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.Cursor;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.pagination.PageLimits;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
 import javax.lang.model.element.Name;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -21,67 +31,115 @@ public class FacultyService {
 
     private final FacultyRepository facultyRepository;
     private final StudentRepository studentRepository;
+    private final PageLimits pageLimits;
+    private final StudentStatistics studentStatistics;
 
-    public FacultyService(FacultyRepository facultyRepository, StudentRepository studentRepository) {
+    public FacultyService(FacultyRepository facultyRepository,
+                          StudentRepository studentRepository,
+                          PageLimits pageLimits,
+                          StudentStatistics studentStatistics) {
         this.facultyRepository = facultyRepository;
         this.studentRepository = studentRepository;
+        this.pageLimits = pageLimits;
+        this.studentStatistics = studentStatistics;
     }
+    @CacheEvict(cacheNames = {"facultiesByColor", "facultiesByName", "facultyStats"}, allEntries = true)
     public Faculty createFaculty(Faculty faculty) {
         faculty.setId(null);
         logger.info("Creating faculty");
         return facultyRepository.save(faculty);
     }
-    public Faculty getFaculty(Long id) {
-        Faculty faculty = facultyRepository.findById(id).orElse(null);
+    @Cacheable(cacheNames = "faculties", key = "#id", unless = "#result == null")
+    public FacultyView getFaculty(Long id) {
+        FacultyView faculty = facultyRepository.findViewById(id).orElse(null);
         if (faculty != null) {
-            logger.info("Found faculty");
+            logger.debug("Found faculty");
             return faculty;
         }
         logger.warn("Faculty {} not found", id);
         return null;
     }
-    public List<Faculty> getAllFaculties() {
-        logger.info("Getting all faculties");
-        return new ArrayList<>(facultyRepository.findAll());
+    @Transactional(readOnly = true)
+    public KeysetPage<FacultyView> getAllFaculties(String cursor, Integer limit) {
+        logger.debug("Getting all faculties");
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? Long.MIN_VALUE : Cursor.decode(cursor, 1).key(0);
+        List<FacultyView> faculties = facultyRepository.findViewsAfter(afterId, Limit.of(pageSize + 1));
+        return KeysetPage.of(faculties, pageSize, faculty -> Cursor.of(faculty.id()));
     }
-    public Faculty updateFaculty(Faculty faculty) {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "faculties", key = "#faculty.id"),
+            @CacheEvict(cacheNames = {"facultiesByColor", "facultiesByName", "students", "facultyStats"}, allEntries = true)
+    })
+    /**
+     * @return факультет, каким его записал UPDATE, с новой версией
+     */
+    @Transactional
+    public FacultyView updateFaculty(Faculty faculty) {
         Long facultyId = faculty.getId();
-        if (!facultyRepository.existsById(facultyId)) {
-            logger.error("Faculty with id {} not found", facultyId);
-            throw new FacultyNotFoundException(facultyId);
+        int updated = facultyRepository.update(facultyId, faculty.getName(), faculty.getColor(), faculty.getVersion());
+        if (updated == 0) {
+            // Второй запрос нужен только в редком случае неудачи, чтобы отличить 404 от 409.
+            if (!facultyRepository.existsById(facultyId)) {
+                logger.error("Faculty with id {} not found", facultyId);
+                throw new FacultyNotFoundException(facultyId);
+            }
+            logger.warn("Faculty with id {} was modified concurrently", facultyId);
+            throw new VersionConflictException(facultyId);
         }
         logger.info("Updating faculty");
-        return facultyRepository.save(faculty);
+        studentStatistics.facultyChanged(facultyId);
+        return facultyRepository.findViewById(facultyId).orElseThrow(() -> new FacultyNotFoundException(facultyId));
     }
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "faculties", key = "#id"),
+            @CacheEvict(cacheNames = {"facultiesByColor", "facultiesByName", "students", "facultyStats"}, allEntries = true)
+    })
     public void deleteFaculty(Long id) {
         logger.info("Deleting faculty with id {}", id);
         facultyRepository.deleteById(id);
+        studentStatistics.facultyChanged(id);
     }
-    public List<Faculty> getFacultiesByColor(String color) {
-        logger.info("Getting all faculties by color {}", color);
-        return facultyRepository.findAllByColorIgnoreCase(color);
+    @Cacheable(cacheNames = "facultiesByColor", key = "#color.toLowerCase()")
+    public List<FacultyView> getFacultiesByColor(String color) {
+        logger.debug("Getting all faculties by color {}", color);
+        return facultyRepository.findViewsByColorIgnoreCase(color);
     }
 
-    public List<Faculty> getFacultiesByName(String name) {
-        logger.info("Getting all faculties by name {}", name);
-        return facultyRepository.findAllByNameIgnoreCase(name);
+    @Cacheable(cacheNames = "facultiesByName", key = "#name.toLowerCase()")
+    public List<FacultyView> getFacultiesByName(String name) {
+        logger.debug("Getting all faculties by name {}", name);
+        return facultyRepository.findViewsByNameIgnoreCase(name);
     }
 
-    public List<Student> getStudentsByFacultyName(String name) {
+    @Transactional(readOnly = true)
+    public KeysetPage<StudentView> getStudentsByFacultyName(String name, String cursor, Integer limit) {
         Faculty faculty = facultyRepository.findByNameIgnoreCase(name)
                 .orElseThrow(() -> {
                     logger.error("Faculty with name {} not found", name);
                     return new FacultyNotFoundException("Факультет не найден");
                 });
-        List<Student> students = studentRepository.findAllByFaculty_Id(faculty.getId());
-        logger.info("Found {} students", students.size());
-        return new ArrayList<>(students);
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? Long.MIN_VALUE : Cursor.decode(cursor, 1).key(0);
+        List<StudentView> students = studentRepository.findViewsByFacultyAfter(
+                faculty.getId(), afterId, Limit.of(pageSize + 1));
+        logger.debug("Found {} students", students.size());
+        return KeysetPage.of(students, pageSize, student -> Cursor.of(student.id()));
+    }
+
+    /**
+     * Пересчитывается одним запросом только после изменений студентов, факультетов или аватаров,
+     * а в остальное время отдается из кеша.
+     */
+    @Cacheable(cacheNames = "facultyStats", key = "'all'")
+    public List<FacultyStats> getFacultyStats() {
+        logger.debug("Calculating faculty statistics");
+        return facultyRepository.findFacultyStats();
     }
 
+    @Transactional(readOnly = true)
     public String getMaxLengthNameFaculty() {
-        return facultyRepository.findAll().stream()
-                .map(Faculty::getName)
-                .max(Comparator.comparingInt(String::length))
+        return facultyRepository.findLongestName()
                 .orElse("Список факультетов пуст");
     }
 }
@@ -0,0 +1,294 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.ImportError;
+import ru.hogwarts.school.dto.ImportResult;
+import ru.hogwarts.school.exception.ImportFormatException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пакетная загрузка студентов. Вход читается потоком, строки копятся пачками по {@code chunkSize}
+ * и сохраняются каждая пачка в своей транзакции, поэтому объем загрузки ограничен только диском базы.
+ * Если пачка не сохранилась, она повторяется построчно, чтобы найти и отклонить только ошибочные строки.
+ */
+@Service
+public class StudentImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    private final EntityManager entityManager;
+    private final FacultyRepository facultyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${students.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${students.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    public StudentImportService(EntityManager entityManager,
+                                FacultyRepository facultyRepository,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.facultyRepository = facultyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Принимает JSON-массив в формате {@code POST /student}: {@code [{"name": ..., "age": ..., "faculty": {"id": ...}}]}.
+     */
+    @CacheEvict(cacheNames = "facultyStats", allEntries = true)
+    public ImportResult importJson(InputStream is) throws IOException {
+        Batch batch = new Batch(facultyRepository.findAllIds());
+        try (JsonParser parser = objectMapper.createParser(is)) {
+            if (nextTokenOrNull(parser) != JsonToken.START_ARRAY) {
+                throw new ImportFormatException("Ожидается JSON-массив студентов");
+            }
+            long row = 0;
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    row++;
+                    JsonNode node = parser.readValueAsTree();
+                    if (node == null) {
+                        batch.reject(row, "Неожиданный конец JSON-массива");
+                        break;
+                    }
+                    batch.add(row, node);
+                }
+            } catch (JsonProcessingException e) {
+                // После синтаксической ошибки позиция в потоке потеряна, поэтому дальше не читаем
+                batch.reject(row, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Принимает CSV с заголовком и колонками {@code name,age,faculty_id} в любом порядке.
+     * Остальные колонки игнорируются, поэтому файл из {@code GET /student/export?format=csv} загружается без правок.
+     */
+    @CacheEvict(cacheNames = "facultyStats", allEntries = true)
+    public ImportResult importCsv(InputStream is) throws IOException {
+        Batch batch = new Batch(facultyRepository.findAllIds());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            throw new ImportFormatException("Пустой CSV: нет строки заголовка");
+        }
+        int nameColumn = header.indexOf("name");
+        int ageColumn = header.indexOf("age");
+        int facultyColumn = header.indexOf("faculty_id");
+        if (nameColumn < 0 || ageColumn < 0) {
+            throw new ImportFormatException("В заголовке CSV должны быть колонки name и age");
+        }
+        long row = 0;
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            row++;
+            String name = column(record, nameColumn);
+            String age = column(record, ageColumn);
+            String facultyId = column(record, facultyColumn);
+            try {
+                batch.add(row, name,
+                        age == null ? null : Integer.valueOf(age.trim()),
+                        facultyId == null ? null : Long.valueOf(facultyId.trim()));
+            } catch (NumberFormatException e) {
+                batch.reject(row, "Возраст и faculty_id должны быть числами");
+            }
+        }
+        return batch.finish();
+    }
+
+    private static JsonToken nextTokenOrNull(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String column(List<String> record, int index) {
+        if (index < 0 || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    /**
+     * Читает одну запись CSV по RFC 4180: поля в кавычках могут содержать запятые, кавычки и переводы строк.
+     *
+     * @return null в конце потока
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void persist(List<PendingStudent> students) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (PendingStudent pending : students) {
+                Student student = new Student();
+                student.setName(pending.name());
+                student.setAge(pending.age());
+                if (pending.facultyId() != null) {
+                    student.setFaculty(entityManager.getReference(Faculty.class, pending.facultyId()));
+                }
+                entityManager.persist(student);
+            }
+            // INSERT уходят пачками по hibernate.jdbc.batch_size, а контекст не копит уже сохраненные сущности
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private record PendingStudent(long row, String name, int age, Long facultyId) {
+    }
+
+    private class Batch {
+
+        private final Set<Long> facultyIds;
+        private final List<PendingStudent> pending = new ArrayList<>();
+        private final List<ImportError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        Batch(Set<Long> facultyIds) {
+            this.facultyIds = facultyIds;
+        }
+
+        void add(long row, JsonNode node) {
+            if (!node.isObject()) {
+                reject(row, "Ожидается объект студента");
+                return;
+            }
+            JsonNode name = node.path("name");
+            JsonNode age = node.path("age");
+            JsonNode facultyId = node.path("faculty").path("id");
+            if (!age.isMissingNode() && !age.isNull() && !age.canConvertToInt()
+                    || !facultyId.isMissingNode() && !facultyId.isNull() && !facultyId.canConvertToLong()) {
+                reject(row, "Возраст и faculty.id должны быть числами");
+                return;
+            }
+            add(row,
+                    name.isTextual() ? name.asText() : null,
+                    age.isNumber() ? age.asInt() : null,
+                    facultyId.isNumber() ? facultyId.asLong() : null);
+        }
+
+        void add(long row, String name, Integer age, Long facultyId) {
+            if (name == null || name.isBlank()) {
+                reject(row, "Не указано имя студента");
+            } else if (age == null || age <= 0) {
+                reject(row, "Недопустимый возраст");
+            } else if (facultyId != null && !facultyIds.contains(facultyId)) {
+                reject(row, "Факультет не найден: " + facultyId);
+            } else {
+                pending.add(new PendingStudent(row, name, age, facultyId));
+                if (pending.size() >= chunkSize) {
+                    flush();
+                }
+            }
+        }
+
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportError(row, message));
+            }
+        }
+
+        ImportResult finish() {
+            flush();
+            logger.info("Students imported: {}, rejected: {}", imported, failed);
+            return new ImportResult(imported, failed, errors);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                persist(pending);
+                imported += pending.size();
+            } catch (PersistenceException | DataAccessException e) {
+                logger.debug("Chunk of {} students failed, retrying row by row", pending.size(), e);
+                for (PendingStudent student : pending) {
+                    try {
+                        persist(List.of(student));
+                        imported++;
+                    } catch (PersistenceException | DataAccessException rowException) {
+                        reject(student.row(), "Строка отклонена базой данных: " + rootMessage(rowException));
+                    }
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
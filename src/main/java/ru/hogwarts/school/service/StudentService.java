@@ -2,14 +2,34 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentAge;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.exception.StudentNotFoundException;
+import ru.hogwarts.school.index.StudentAgeIndex;
+import ru.hogwarts.school.index.StudentNameIndex;
+import ru.hogwarts.school.index.StudentStatistics;
+import ru.hogwarts.school.exception.VersionConflictException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.Cursor;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.pagination.PageLimits;
+import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -18,131 +38,240 @@ import java.util.stream.Stream;
 public class StudentService {
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
 
+    // Триграммный индекс не помогает искать подстроки короче трех символов
+    private static final int MIN_SUBSTRING_QUERY = 3;
+    private static final int AUTOCOMPLETE_SIZE = 10;
+
     private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final PageLimits pageLimits;
+    private final StudentAgeIndex studentAgeIndex;
+    private final StudentNameIndex studentNameIndex;
+    private final StudentStatistics studentStatistics;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository,
+                          FacultyRepository facultyRepository,
+                          PageLimits pageLimits,
+                          StudentAgeIndex studentAgeIndex,
+                          StudentNameIndex studentNameIndex,
+                          StudentStatistics studentStatistics) {
         this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.pageLimits = pageLimits;
+        this.studentAgeIndex = studentAgeIndex;
+        this.studentNameIndex = studentNameIndex;
+        this.studentStatistics = studentStatistics;
     }
 
+    @CacheEvict(cacheNames = "facultyStats", allEntries = true)
     public Student createStudent(Student student) {
         logger.info("Creating student");
         return studentRepository.save(student);
     }
-    public Student getStudent(Long id) {
-        Student student = studentRepository.findById(id).orElse(null);
+    // Кешируемые чтения идут в основную базу: значение с отстающей реплики осталось бы в кеше до истечения срока
+    @Cacheable(cacheNames = "students", key = "#id", unless = "#result == null")
+    public StudentView getStudent(Long id) {
+        StudentView student = studentRepository.findViewById(id).orElse(null);
         if (student != null) {
-            logger.info("Found student");
-            return studentRepository.findById(id).orElse(null);
+            logger.debug("Found student");
+            return student;
         }
         logger.warn("Student with id {} not found", id);
         return null;
     }
-    public List<Student> getAllStudents() {
+    @Transactional(readOnly = true)
+    public KeysetPage<StudentView> getAllStudents(String cursor, Integer limit) {
         logger.debug("Getting all students");
-        return new ArrayList<>(studentRepository.findAll());
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? Long.MIN_VALUE : Cursor.decode(cursor, 1).key(0);
+        List<StudentView> students = studentRepository.findViewsAfter(afterId, Limit.of(pageSize + 1));
+        return KeysetPage.of(students, pageSize, student -> Cursor.of(student.id()));
     }
-    public Student updateStudent(Student student) {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "students", key = "#student.id"),
+            @CacheEvict(cacheNames = "facultyStats", allEntries = true)
+    })
+    /**
+     * @return студент, каким его записал UPDATE: с новой версией и полным факультетом,
+     * даже если клиент не прислал версию или прислал только id факультета
+     */
+    @Transactional
+    public StudentView updateStudent(Student student) {
         Long studentId = student.getId();
-        if (!studentRepository.existsById(studentId)) {
-            logger.error("Student with id {} not found", studentId);
-            throw new StudentNotFoundException(studentId);
+        Faculty faculty = student.getFaculty() == null || student.getFaculty().getId() == null
+                ? null
+                : facultyRepository.getReferenceById(student.getFaculty().getId());
+        // Прежний возраст нужен статистике, чтобы поправить сумму возрастов без пересчета по таблице.
+        // Строка блокируется сразу: без блокировки параллельное обновление между чтением и UPDATE сдвинуло бы сумму
+        Integer previousAge = studentStatistics.isReady() ? studentRepository.findAgeByIdForUpdate(studentId).orElse(null) : null;
+        int updated = studentRepository.update(studentId, student.getName(), student.getAge(), faculty, student.getVersion());
+        if (updated == 0) {
+            // Второй запрос нужен только в редком случае неудачи, чтобы отличить 404 от 409.
+            if (!studentRepository.existsById(studentId)) {
+                logger.error("Student with id {} not found", studentId);
+                throw new StudentNotFoundException(studentId);
+            }
+            logger.warn("Student with id {} was modified concurrently", studentId);
+            throw new VersionConflictException(studentId);
         }
         logger.info("Updating student");
-        return studentRepository.save(student);
+        // JPQL UPDATE проходит мимо слушателей сущности, поэтому индексы обновляются явно
+        studentAgeIndex.studentUpdated(studentId, student.getAge());
+        studentNameIndex.studentNamed(student.getName());
+        studentStatistics.studentUpdated(studentId, previousAge, student.getAge());
+        // Читается в той же транзакции: строка заблокирована UPDATE, а запрос идет в основную базу
+        return studentRepository.findViewById(studentId).orElseThrow(() -> new StudentNotFoundException(studentId));
     }
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "students", key = "#id"),
+            @CacheEvict(cacheNames = "facultyStats", allEntries = true)
+    })
     public void deleteStudent(Long id) {
         logger.debug("Deleting student");
         studentRepository.deleteById(id);
     }
-    public List<Student> findStudentByAge(int age) {
+    @Transactional(readOnly = true)
+    public KeysetPage<StudentView> findStudentByAge(int age, String cursor, Integer limit) {
         if (age > 0) {
             logger.debug("Finding students by age");
-            return studentRepository.findAllByAge(age);
+            int pageSize = pageLimits.resolve(limit);
+            long afterId = cursor == null ? Long.MIN_VALUE : Cursor.decode(cursor, 1).key(0);
+            if (studentAgeIndex.isReady()) {
+                List<Long> ids = Arrays.stream(studentAgeIndex.findIds(age, afterId, pageSize + 1)).boxed().toList();
+                return KeysetPage.ofKeys(ids, pageSize, id -> Cursor.of(id), this::findInIndexOrder);
+            }
+            List<StudentView> students = studentRepository.findViewsByAgeAfter(age, afterId, Limit.of(pageSize + 1));
+            return KeysetPage.of(students, pageSize, student -> Cursor.of(student.id()));
         }
         logger.warn("Students by age {} not found", age);
-        return new ArrayList<>();
+        return KeysetPage.empty();
     }
 
-    public List<Student> findByAgeBetween(int minAge, int maxAge) {
+    @Transactional(readOnly = true)
+    public KeysetPage<StudentView> findByAgeBetween(int minAge, int maxAge, String cursor, Integer limit) {
         if (minAge > 0 && maxAge > minAge) {
-            logger.info("Finding students by age between");
-            return studentRepository.findByAgeBetween(minAge, maxAge);
+            logger.debug("Finding students by age between");
+            int pageSize = pageLimits.resolve(limit);
+            Cursor after = cursor == null ? Cursor.of(Integer.MIN_VALUE, Long.MIN_VALUE) : Cursor.decode(cursor, 2);
+            if (studentAgeIndex.isReady()) {
+                List<StudentAge> keys = studentAgeIndex.findBetween(
+                        minAge, maxAge, (int) after.key(0), after.key(1), pageSize + 1);
+                return KeysetPage.ofKeys(keys, pageSize, key -> Cursor.of(key.age(), key.id()),
+                        page -> findInIndexOrder(page.stream().map(StudentAge::id).toList()));
+            }
+            List<StudentView> students = studentRepository.findViewsByAgeBetweenAfter(
+                    minAge, maxAge, (int) after.key(0), after.key(1), Limit.of(pageSize + 1));
+            return KeysetPage.of(students, pageSize, student -> Cursor.of(student.age(), student.id()));
         }
         logger.warn("Students by age between {} and {} not found", minAge, maxAge);
-        return new ArrayList<>();
+        return KeysetPage.empty();
+    }
+
+    /**
+     * Загружает студентов, найденных индексом по возрасту, одним запросом по первичному ключу
+     * и возвращает их в порядке индекса. Студенты, которых в базе уже или еще нет, пропускаются.
+     * Для пустого списка запроса к базе нет.
+     */
+    private List<StudentView> findInIndexOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, StudentView> students = studentRepository.findViewsByIdIn(ids)
+                .stream()
+                .collect(Collectors.toMap(StudentView::id, Function.identity()));
+        return ids.stream()
+                .map(students::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Поиск по имени без учета регистра: сначала имена, начинающиеся с запроса, затем содержащие его.
+     * Запросы короче {@value #MIN_SUBSTRING_QUERY} символов ищутся только по префиксу.
+     */
+    @Transactional(readOnly = true)
+    public List<StudentView> searchByName(String query, Integer limit) {
+        String normalized = query.strip().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        logger.debug("Searching students by name");
+        String prefix = escapeLike(normalized, '!') + "%";
+        String pattern = normalized.length() < MIN_SUBSTRING_QUERY ? prefix : "%" + prefix;
+        return studentRepository.searchByName(pattern, prefix, Limit.of(pageLimits.resolve(limit)));
     }
 
-    public Faculty findFacultyByStudentName(String name) {
-        logger.info("Finding faculty by name");
-        return studentRepository.findByName(name).getFaculty();
+    /**
+     * Различные имена с префиксом для автодополнения. Из памяти, если включен {@link StudentNameIndex},
+     * иначе из базы по индексу student_name_lower_pattern_index.
+     */
+    @Transactional(readOnly = true)
+    public List<String> autocompleteNames(String prefix, Integer limit) {
+        String normalized = prefix.strip();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        int size = limit == null ? AUTOCOMPLETE_SIZE : pageLimits.resolve(limit);
+        if (studentNameIndex.isReady()) {
+            return studentNameIndex.complete(normalized, size);
+        }
+        String pattern = escapeLike(normalized.toLowerCase(Locale.ROOT), '!') + "%";
+        return studentRepository.findDistinctNamesByPattern(pattern, Limit.of(size));
     }
 
+    @Transactional(readOnly = true)
+    public FacultyView findFacultyByStudentName(String name) {
+        logger.debug("Finding faculty by name");
+        return studentRepository.findFacultyViewByStudentName(name).orElse(null);
+    }
+
+    /**
+     * Из {@link StudentStatistics}, если она включена, иначе запросом к базе.
+     * Без транзакции: в памяти она не нужна, а редкое перечитывание должно видеть основную базу, а не реплику.
+     */
     public long countAllStudents() {
-        logger.info("Counting all students");
-        return studentRepository.countAllStudents();
+        logger.debug("Counting all students");
+        return studentStatistics.isReady() ? studentStatistics.count() : studentRepository.countAllStudents();
     }
 
     public float getAverageAge() {
         logger.debug("Getting average age");
-        return studentRepository.getAverageAge();
+        return studentStatistics.isReady() ? (float) studentStatistics.averageAge() : studentRepository.getAverageAge();
     }
 
-    public List<Student> getFiveLatestStudents() {
-        logger.info("Getting five latest students");
-        return studentRepository.getFiveLatestStudents();
+    public List<StudentView> getFiveLatestStudents() {
+        logger.debug("Getting five latest students");
+        return studentStatistics.isReady() ? studentStatistics.latest() : studentRepository.findFiveLatestViews();
     }
 
+    @Transactional(readOnly = true)
     public List<String> getAllNamesBeginWithLetter(String letter) {
-        return studentRepository.findAll().stream()
-                .map(Student -> Student.getName().split(" ")[0])
-                .filter(name -> name.startsWith(letter))
+        // Фильтрация по префиксу и выделение первого слова выполняются в базе,
+        // верхний регистр и сортировка остаются в Java, чтобы не зависеть от локали базы.
+        return studentRepository.findFirstNamesByPattern(escapeLike(letter, '\\') + "%").stream()
                 .map(String::toUpperCase)
                 .sorted()
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public double getAverageAgeWithFindAll() {
-        return studentRepository.findAll().stream()
-                .mapToInt(Student::getAge)
-                .average()
-                .orElse(0.0);
+        return studentRepository.getAverageAgeOrZero();
+    }
+
+    private static String escapeLike(String value, char escape) {
+        String escapeString = String.valueOf(escape);
+        return value.replace(escapeString, escapeString + escapeString)
+                .replace("%", escapeString + "%")
+                .replace("_", escapeString + "_");
     }
 
+    /**
+     * Сумма чисел от 1 до 1 000 000 по формуле арифметической прогрессии: O(1) вместо обхода потоком.
+     * Сравнение с вариантами на Stream и LongStream — в {@code SumBenchmark} ({@code ./gradlew jmh}).
+     */
     public long calculateExample() {// ввиду переполнения меняю int на long
-        long startTime = System.nanoTime();
-        long sum = 1_000_000L * (1_000_000L + 1L) / 2L;
-        long endTime = System.nanoTime();
-        System.out.println(endTime - startTime);
-        return sum;
-        /*long sum = Stream.iterate(1L, a -> a +1L)
-                .limit(1_000_000)
-                .reduce(0L, (a, b) -> a + b);
-        Среднее время выполнения 32895899 наносекунд
-        -------
-        long sum = Stream.iterate(1L, a -> a +1L)
-                .limit(1_000_000)
-                .reduce(0L, Long::sum);
-        Среднее время выполнения 28409599 наносекунд
-        -------
-        long sum = LongStream.iterate(1, a -> a +1)
-                .limit(1_000_000)
-                .reduce(0L, Long::sum);
-        Среднее время выполнения 9588659 наносекунд
-        -------
-        long sum = LongStream.rangeClosed(1, 1_000_000)
-                .sum();
-        Среднее время выполнения 1949600 наносекунд
-        -------
-        long sum = LongStream.rangeClosed(1, 1_000_000)
-                .parallel()
-                .sum();
-        Среднее время выполнения 576500 наносекунд
-        -------
-        long sum = 1_000_000L * (1_000_000L + 1L) / 2L;
-        Среднее время выполнения 280 наносекунд
-        Вывод: Итоговое выражение выполняется в 117_000 раз быстрее первоначального!
-        Сложность последнего выражения O(1) против потока О(n)
-        */
+        return 1_000_000L * (1_000_000L + 1L) / 2L;
     }
 
 }
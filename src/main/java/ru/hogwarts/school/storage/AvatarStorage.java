@@ -0,0 +1,68 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Бэкенд для содержимого изображений. Ключ во всех бэкендах — SHA-256 содержимого, как в
+ * {@link ContentAddressedFileStore}: одинаковые изображения хранятся один раз, а перенос между бэкендами
+ * не меняет ключ. В каком бэкенде лежит изображение, записано в {@code avatar.storage}.
+ */
+public interface AvatarStorage {
+
+    /**
+     * Имя бэкенда в {@code avatar.storage} и в свойствах {@code avatars.storage.*}.
+     */
+    String name();
+
+    /**
+     * Записывает содержимое файла под ключом {@code contentHash}. Повторная запись того же содержимого ничего не меняет.
+     */
+    void put(String contentHash, Path source) throws IOException;
+
+    /**
+     * Передает содержимое потоком, не загружая его в память целиком. Поток действителен только внутри вызова.
+     *
+     * @return false, если содержимого с таким ключом нет
+     */
+    boolean read(String contentHash, ThrowingConsumer<InputStream> consumer) throws IOException;
+
+    /**
+     * Путь к содержимому на локальном диске, если бэкенд хранит его там. Такой файл отдается
+     * с поддержкой Range и sendfile, а превью строятся без копирования.
+     */
+    default Optional<Path> localPath(String contentHash) {
+        return Optional.empty();
+    }
+
+    void delete(String contentHash) throws IOException;
+
+    /**
+     * Ключи содержимого, которое не записывалось с момента {@code olderThan}: кандидаты для {@link AvatarStorageCleaner}.
+     * Диск чистит свой сборщик мусора, поэтому по умолчанию кандидатов нет.
+     */
+    default Stream<String> findContentHashes(Instant olderThan) throws IOException {
+        return Stream.empty();
+    }
+
+    /**
+     * Удаляет содержимое, если {@code unreferenced} подтверждает, что на него больше не ссылается ни один аватар.
+     * Бэкенд, который умеет, блокирует содержимое на время проверки и удаления и не удаляет записанное после {@code olderThan}.
+     *
+     * @return true, если содержимое удалено
+     */
+    default boolean deleteUnreferenced(String contentHash, Instant olderThan, BooleanSupplier unreferenced) throws IOException {
+        if (!unreferenced.getAsBoolean()) {
+            return false;
+        }
+        delete(contentHash);
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Сборщик мусора для бэкендов, кроме диска: удаляет содержимое, на которое в этом бэкенде не ссылается
+ * ни один аватар — после замены, переноса или удаления студента. Правило то же, что у
+ * {@link ContentAddressedFileStoreCleaner}: содержимое, записанное позже {@code avatars.gc.grace-period},
+ * не трогается, на него может ссылаться перенос, транзакция которого еще не закоммичена.
+ * Перед удалением ссылки проверяются еще раз, см. {@link AvatarStorage#deleteUnreferenced}.
+ */
+@Component
+public class AvatarStorageCleaner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStorageCleaner.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final AvatarStorages avatarStorages;
+    private final AvatarRepository avatarRepository;
+    private final Duration gracePeriod;
+
+    public AvatarStorageCleaner(AvatarStorages avatarStorages,
+                                AvatarRepository avatarRepository,
+                                @Value("${avatars.gc.grace-period:PT1H}") Duration gracePeriod) {
+        this.avatarStorages = avatarStorages;
+        this.avatarRepository = avatarRepository;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.gc.interval:PT1H}", initialDelayString = "${avatars.gc.interval:PT1H}")
+    public void collectGarbage() {
+        Instant olderThan = Instant.now().minus(gracePeriod);
+        for (AvatarStorage storage : avatarStorages.all()) {
+            try {
+                int deleted = collectGarbage(storage, olderThan);
+                if (deleted > 0) {
+                    logger.info("Avatar storage {} garbage collection finished, {} objects deleted", storage.name(), deleted);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Avatar storage {} garbage collection failed", storage.name(), e);
+            }
+        }
+    }
+
+    private int collectGarbage(AvatarStorage storage, Instant olderThan) throws IOException {
+        int deleted = 0;
+        try (Stream<String> contentHashes = storage.findContentHashes(olderThan)) {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (String contentHash : (Iterable<String>) contentHashes::iterator) {
+                batch.add(contentHash);
+                if (batch.size() == BATCH_SIZE) {
+                    deleted += deleteUnreferenced(storage, batch, olderThan);
+                    batch.clear();
+                }
+            }
+            deleted += deleteUnreferenced(storage, batch, olderThan);
+        }
+        return deleted;
+    }
+
+    private int deleteUnreferenced(AvatarStorage storage, List<String> contentHashes, Instant olderThan) throws IOException {
+        if (contentHashes.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>(avatarRepository.findReferencedContentHashes(contentHashes, storage.name()));
+        int deleted = 0;
+        for (String contentHash : contentHashes) {
+            if (!referenced.contains(contentHash) && storage.deleteUnreferenced(contentHash, olderThan,
+                    () -> !avatarRepository.existsByContentHashAndStorage(contentHash, storage.name()))) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Доступные бэкенды по имени и их роли в развертывании: {@code avatars.storage.primary} — куда попадают
+ * новые изображения, {@code avatars.storage.cold} — куда переносятся давно не запрашиваемые.
+ * Без холодного бэкенда изображения не переносятся.
+ */
+@Component
+public class AvatarStorages {
+
+    private final Map<String, AvatarStorage> storages;
+    private final String primary;
+    private final String cold;
+
+    public AvatarStorages(List<AvatarStorage> storages,
+                          @Value("${avatars.storage.primary:file}") String primary,
+                          @Value("${avatars.storage.cold:}") String cold) {
+        this.storages = storages.stream().collect(Collectors.toMap(AvatarStorage::name, Function.identity()));
+        this.primary = primary;
+        this.cold = cold.isBlank() ? null : cold;
+        get(primary);
+        if (this.cold != null) {
+            get(this.cold);
+        }
+    }
+
+    public AvatarStorage get(String name) {
+        AvatarStorage storage = storages.get(name);
+        if (storage == null) {
+            throw new IllegalStateException("Unknown avatar storage: " + name + ", available: " + storages.keySet());
+        }
+        return storage;
+    }
+
+    public Collection<AvatarStorage> all() {
+        return storages.values();
+    }
+
+    public String primary() {
+        return primary;
+    }
+
+    public Optional<String> cold() {
+        return Optional.ofNullable(cold);
+    }
+}
@@ -0,0 +1,190 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Файловое хранилище, в котором имя файла — SHA-256 его содержимого.
+ * Файлы раскладываются по каталогам по первым двум байтам хеша: {@code ab/cd/abcd...}.
+ * Одинаковые изображения хранятся один раз, а имя файла никогда не меняется.
+ */
+@Component
+public class ContentAddressedFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedFileStore.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int HASH_LENGTH = 64;
+    private static final String TMP_DIR = "tmp";
+
+    private final Path root;
+
+    public ContentAddressedFileStore(@Value("${path.to.avatars.folder}") String avatarsDir) {
+        this.root = Path.of(avatarsDir);
+    }
+
+    /**
+     * Записывает поток во временный файл, попутно считая хеш, и атомарно переименовывает его в итоговый.
+     * Если файл с таким хешем уже есть, временный файл удаляется, а у существующего обновляется время
+     * изменения, чтобы сборщик мусора не удалил его до того, как на него сошлется новая запись.
+     */
+    public StoredFile store(InputStream is) throws IOException {
+        Path tmpDir = root.resolve(TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size = copyAndDigest(is, tmp, digest);
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(contentHash);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                logger.debug("Content {} already stored", contentHash);
+                return new StoredFile(contentHash, target, size, false);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, ATOMIC_MOVE);
+            return new StoredFile(contentHash, target, size, true);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Path resolve(String contentHash) {
+        if (!isContentHash(contentHash)) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    /**
+     * Пересчитывает хеш файла и сравнивает его с именем: так обнаруживается файл, поврежденный на диске.
+     */
+    public boolean verify(String contentHash) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (InputStream is = Files.newInputStream(resolve(contentHash))) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return contentHash.equals(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Удаляет файл и все производные от него файлы (превью), лежащие рядом с ним.
+     */
+    public void delete(String contentHash) throws IOException {
+        Path file = resolve(contentHash);
+        try (Stream<Path> siblings = Files.list(file.getParent())) {
+            for (Path sibling : (Iterable<Path>) siblings::iterator) {
+                if (sibling.getFileName().toString().startsWith(contentHash)) {
+                    Files.deleteIfExists(sibling);
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет только оригинал, превью остаются: так освобождается место, когда содержимое перенесено в другой бэкенд.
+     */
+    public void deleteOriginal(String contentHash) throws IOException {
+        Files.deleteIfExists(resolve(contentHash));
+    }
+
+    /**
+     * Хеши всех файлов, которые не менялись с момента {@code olderThan}. Превью дают хеш своего оригинала,
+     * поэтому хеши могут повторяться: после переноса в другой бэкенд на диске остаются только превью.
+     */
+    public Stream<String> findContentHashes(Instant olderThan) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                        && contentHashOf(path.getFileName().toString()) != null
+                        && attributes.lastModifiedTime().toInstant().isBefore(olderThan))
+                .map(path -> contentHashOf(path.getFileName().toString()));
+    }
+
+    /**
+     * Удаляет временные файлы, оставшиеся от прерванных загрузок.
+     */
+    public void deleteStaleTempFiles(Instant olderThan) throws IOException {
+        Path tmpDir = root.resolve(TMP_DIR);
+        if (!Files.isDirectory(tmpDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(tmpDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(olderThan)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private String contentHashOf(String fileName) {
+        String contentHash = fileName.length() > HASH_LENGTH && fileName.charAt(HASH_LENGTH) == '_'
+                ? fileName.substring(0, HASH_LENGTH)
+                : fileName;
+        return isContentHash(contentHash) ? contentHash : null;
+    }
+
+    private boolean isContentHash(String value) {
+        return value != null && CONTENT_HASH.matcher(value).matches();
+    }
+
+    /**
+     * Копирует поток в файл за один проход, попутно считая размер и хеш содержимого.
+     * Файл целиком в памяти не держится: через буфер проходит не больше 64 КБ за раз.
+     */
+    private long copyAndDigest(InputStream is, Path filePath, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer chunk = ByteBuffer.wrap(buffer);
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(filePath, WRITE, TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                chunk.clear().limit(read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                size += read;
+            }
+        }
+        return size;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
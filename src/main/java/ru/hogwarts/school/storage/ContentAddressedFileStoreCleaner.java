@@ -0,0 +1,81 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Сборщик мусора для {@link ContentAddressedFileStore}. Счетчик ссылок на файл — число записей
+ * {@code avatar} с его хешем; файлы без ссылок удаляются вместе с превью. Если все ссылки указывают
+ * на другие бэкенды, удаляется только оригинал, а превью остаются. Файлы моложе {@code avatars.gc.grace-period}
+ * не трогаются: на них может ссылаться загрузка или перенос, транзакция которых еще не закоммичена.
+ */
+@Component
+public class ContentAddressedFileStoreCleaner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedFileStoreCleaner.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ContentAddressedFileStore contentAddressedFileStore;
+    private final AvatarRepository avatarRepository;
+    private final Duration gracePeriod;
+
+    public ContentAddressedFileStoreCleaner(ContentAddressedFileStore contentAddressedFileStore,
+                                            AvatarRepository avatarRepository,
+                                            @Value("${avatars.gc.grace-period:PT1H}") Duration gracePeriod) {
+        this.contentAddressedFileStore = contentAddressedFileStore;
+        this.avatarRepository = avatarRepository;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.gc.interval:PT1H}", initialDelayString = "${avatars.gc.interval:PT1H}")
+    public void collectGarbage() throws IOException {
+        Instant olderThan = Instant.now().minus(gracePeriod);
+        int deleted = 0;
+        try (Stream<String> contentHashes = contentAddressedFileStore.findContentHashes(olderThan)) {
+            // Хеш оригинала и его превью идут подряд, повторы в пачке отбрасываются
+            Set<String> batch = new LinkedHashSet<>();
+            for (String contentHash : (Iterable<String>) contentHashes::iterator) {
+                batch.add(contentHash);
+                if (batch.size() == BATCH_SIZE) {
+                    deleted += deleteUnreferenced(batch);
+                    batch.clear();
+                }
+            }
+            deleted += deleteUnreferenced(batch);
+        }
+        contentAddressedFileStore.deleteStaleTempFiles(olderThan);
+        logger.info("Avatar store garbage collection finished, {} files deleted", deleted);
+    }
+
+    private int deleteUnreferenced(Set<String> contentHashes) throws IOException {
+        if (contentHashes.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>(avatarRepository.findReferencedContentHashes(contentHashes));
+        Set<String> referencedOnDisk = new HashSet<>(
+                avatarRepository.findReferencedContentHashes(contentHashes, FileSystemAvatarStorage.NAME));
+        int deleted = 0;
+        for (String contentHash : contentHashes) {
+            if (!referenced.contains(contentHash)) {
+                contentAddressedFileStore.delete(contentHash);
+                deleted++;
+            } else if (!referencedOnDisk.contains(contentHash)) {
+                contentAddressedFileStore.deleteOriginal(contentHash);
+            }
+        }
+        return deleted;
+    }
+}
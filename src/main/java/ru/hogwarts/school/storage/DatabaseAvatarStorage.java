@@ -0,0 +1,140 @@
+package ru.hogwarts.school.storage;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.function.ThrowingConsumer;
+import ru.hogwarts.school.model.AvatarBlob;
+import ru.hogwarts.school.repository.AvatarBlobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Большие объекты PostgreSQL в {@code avatar_blob}. Запись и чтение идут потоком через
+ * {@link BlobProxy} и {@link java.sql.Blob#getBinaryStream()}, изображение целиком в памяти не держится.
+ * Читатель получает содержимое из временного файла уже после транзакции: медленный клиент
+ * не держит соединение с базой все время передачи.
+ */
+@Component
+public class DatabaseAvatarStorage implements AvatarStorage {
+
+    public static final String NAME = "db";
+
+    private static final int PAGE_SIZE = 500;
+
+    private final AvatarBlobRepository avatarBlobRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public DatabaseAvatarStorage(AvatarBlobRepository avatarBlobRepository, TransactionTemplate transactionTemplate) {
+        this.avatarBlobRepository = avatarBlobRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Если содержимое уже есть, обновляется только время записи: пока не прошел срок ожидания сборщика мусора,
+     * он это содержимое не удалит, даже если ссылка на него еще не закоммичена.
+     */
+    @Override
+    @Transactional
+    public void put(String contentHash, Path source) throws IOException {
+        Instant now = Instant.now();
+        if (avatarBlobRepository.touch(contentHash, now) > 0) {
+            return;
+        }
+        try (InputStream is = Files.newInputStream(source)) {
+            avatarBlobRepository.saveAndFlush(new AvatarBlob(contentHash, BlobProxy.generateProxy(is, Files.size(source)), now));
+        }
+    }
+
+    /**
+     * Большие объекты PostgreSQL читаются только в рамках транзакции. Внутри нее содержимое копируется
+     * во временный файл со скоростью базы, а {@code consumer} читает файл после коммита.
+     */
+    @Override
+    public boolean read(String contentHash, ThrowingConsumer<InputStream> consumer) throws IOException {
+        Path tmp = Files.createTempFile("avatar", ".tmp");
+        try {
+            Boolean found = readOnlyTransaction.execute(status -> copy(contentHash, tmp));
+            if (!Boolean.TRUE.equals(found)) {
+                return false;
+            }
+            try (InputStream is = Files.newInputStream(tmp)) {
+                consumer.accept(is);
+            }
+            return true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void delete(String contentHash) {
+        avatarBlobRepository.unlinkData(contentHash);
+        avatarBlobRepository.deleteById(contentHash);
+    }
+
+    /**
+     * Ключи читаются страницами по {@value #PAGE_SIZE}, каждая страница — отдельный короткий запрос.
+     */
+    @Override
+    public Stream<String> findContentHashes(Instant olderThan) {
+        return Stream.iterate(findPage(olderThan, ""),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < PAGE_SIZE ? List.of() : findPage(olderThan, page.get(page.size() - 1)))
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Проверка ссылок и удаление идут под блокировкой строки: {@link #put} того же содержимого дождется
+     * конца транзакции и запишет его заново, а не сошлется на удаленное.
+     */
+    @Override
+    @Transactional
+    public boolean deleteUnreferenced(String contentHash, Instant olderThan, BooleanSupplier unreferenced) {
+        if (avatarBlobRepository.lockIfTouchedBefore(contentHash, olderThan).isEmpty() || !unreferenced.getAsBoolean()) {
+            return false;
+        }
+        delete(contentHash);
+        return true;
+    }
+
+    private boolean copy(String contentHash, Path target) {
+        AvatarBlob blob = avatarBlobRepository.findById(contentHash).orElse(null);
+        if (blob == null) {
+            return false;
+        }
+        try (InputStream is = blob.getData().getBinaryStream()) {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (SQLException e) {
+            throw new UncheckedIOException(new IOException("Failed to read avatar blob " + contentHash, e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private List<String> findPage(Instant olderThan, String after) {
+        return avatarBlobRepository.findContentHashesTouchedBefore(olderThan, after, Limit.of(PAGE_SIZE));
+    }
+}
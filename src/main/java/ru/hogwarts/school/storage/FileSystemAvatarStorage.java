@@ -0,0 +1,71 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Локальный диск через {@link ContentAddressedFileStore}. Сюда всегда попадает загрузка: хеш и превью
+ * считаются по локальному файлу, а в другой бэкенд содержимое переносит обработка.
+ */
+@Component
+public class FileSystemAvatarStorage implements AvatarStorage {
+
+    public static final String NAME = "file";
+
+    private final ContentAddressedFileStore contentAddressedFileStore;
+
+    public FileSystemAvatarStorage(ContentAddressedFileStore contentAddressedFileStore) {
+        this.contentAddressedFileStore = contentAddressedFileStore;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void put(String contentHash, Path source) throws IOException {
+        StoredFile storedFile;
+        try (InputStream is = Files.newInputStream(source)) {
+            storedFile = contentAddressedFileStore.store(is);
+        }
+        if (!storedFile.contentHash().equals(contentHash)) {
+            if (storedFile.created()) {
+                contentAddressedFileStore.deleteOriginal(storedFile.contentHash());
+            }
+            throw new IOException("Content of " + source + " does not match hash " + contentHash);
+        }
+    }
+
+    @Override
+    public boolean read(String contentHash, ThrowingConsumer<InputStream> consumer) throws IOException {
+        Path file = contentAddressedFileStore.resolve(contentHash);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            consumer.accept(is);
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Path> localPath(String contentHash) {
+        Path file = contentAddressedFileStore.resolve(contentHash);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Удаляет только оригинал: превью остаются на диске и для изображений из других бэкендов.
+     */
+    @Override
+    public void delete(String contentHash) throws IOException {
+        contentAddressedFileStore.deleteOriginal(contentHash);
+    }
+}
@@ -0,0 +1,144 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разбирает старые копии изображений в {@code avatar_data}, которые остались от времени, когда каждая загрузка
+ * писалась и в файл, и в базу. Копия удаляется, только если аватар лежит в другом бэкенде или его файл
+ * на месте. Если файла нет, копия переносится в {@code avatar_blob}, а аватар переключается на бэкенд {@code db}.
+ * Копии без хеша содержимого и без файла остаются в таблице, о них пишется предупреждение.
+ * <p>
+ * Саму таблицу удаляет changeset 14, и только когда она пуста: до этого каждый запуск приложения
+ * доделывает оставшиеся строки.
+ */
+@Component
+public class LegacyAvatarDataMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyAvatarDataMigration.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LegacyAvatarDataMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.tables WHERE table_name = 'avatar_data'", Integer.class);
+        if (tables == null || tables == 0) {
+            return;
+        }
+        int dropped = 0;
+        int rescued = 0;
+        int kept = 0;
+        long afterId = Long.MIN_VALUE;
+        List<Long> batch;
+        do {
+            batch = jdbcTemplate.queryForList(
+                    "SELECT avatar_id FROM avatar_data WHERE avatar_id > ? ORDER BY avatar_id LIMIT " + BATCH_SIZE,
+                    Long.class, afterId);
+            for (Long avatarId : batch) {
+                Outcome outcome;
+                try {
+                    outcome = transactionTemplate.execute(status -> migrate(avatarId));
+                } catch (RuntimeException e) {
+                    // Копия остается в таблице, следующий запуск попробует снова
+                    logger.warn("Failed to migrate legacy copy of avatar {}", avatarId, e);
+                    outcome = Outcome.KEPT;
+                }
+                if (outcome == Outcome.DROPPED) {
+                    dropped++;
+                } else if (outcome == Outcome.RESCUED) {
+                    rescued++;
+                } else if (outcome == Outcome.KEPT) {
+                    kept++;
+                }
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+            }
+        } while (batch.size() == BATCH_SIZE);
+        if (dropped + rescued + kept > 0) {
+            logger.info("Legacy avatar copies: {} dropped, {} moved to avatar_blob, {} kept", dropped, rescued, kept);
+        }
+    }
+
+    /**
+     * Строки копии и аватара блокируются: параллельная загрузка не сменит файл аватара между проверкой и удалением,
+     * а другой экземпляр приложения не разберет ту же копию второй раз.
+     */
+    private Outcome migrate(long avatarId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT a.file_path, a.content_hash, a.storage, d.data IS NOT NULL AS has_data " +
+                        "FROM avatar_data d JOIN avatar a ON a.id = d.avatar_id WHERE d.avatar_id = ? FOR UPDATE",
+                avatarId);
+        if (rows.isEmpty()) {
+            return Outcome.SKIPPED;
+        }
+        Map<String, Object> row = rows.get(0);
+        String contentHash = (String) row.get("content_hash");
+        if (!Boolean.TRUE.equals(row.get("has_data"))
+                || !FileSystemAvatarStorage.NAME.equals(row.get("storage"))
+                || fileExists((String) row.get("file_path"))) {
+            drop(avatarId);
+            return Outcome.DROPPED;
+        }
+        if (contentHash == null) {
+            logger.warn("Avatar {} has neither a file nor a content hash, its legacy copy is kept in avatar_data", avatarId);
+            return Outcome.KEPT;
+        }
+        // Как в DatabaseAvatarStorage.put: отметка времени ждет блокировку сборщика мусора и защищает содержимое от него
+        if (jdbcTemplate.update("UPDATE avatar_blob SET touched_at = now() WHERE content_hash = ?", contentHash) > 0) {
+            drop(avatarId);
+        } else {
+            // Большой объект переходит в avatar_blob как есть, без копирования
+            jdbcTemplate.update("INSERT INTO avatar_blob (content_hash, data, touched_at) " +
+                    "SELECT ?, data, now() FROM avatar_data WHERE avatar_id = ?", contentHash, avatarId);
+            jdbcTemplate.update("DELETE FROM avatar_data WHERE avatar_id = ?", avatarId);
+        }
+        jdbcTemplate.update("UPDATE avatar SET storage = ? WHERE id = ?", DatabaseAvatarStorage.NAME, avatarId);
+        logger.info("Avatar {} file is missing, its legacy copy moved to avatar_blob", avatarId);
+        return Outcome.RESCUED;
+    }
+
+    /**
+     * Большие объекты при удалении строки не освобождаются, поэтому удаляются явно.
+     */
+    private void drop(long avatarId) {
+        jdbcTemplate.queryForList("SELECT lo_unlink(data) FROM avatar_data WHERE avatar_id = ? AND data IS NOT NULL",
+                Integer.class, avatarId);
+        jdbcTemplate.update("DELETE FROM avatar_data WHERE avatar_id = ?", avatarId);
+    }
+
+    private static boolean fileExists(String filePath) {
+        try {
+            return filePath != null && Files.isRegularFile(Path.of(filePath));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private enum Outcome {
+        DROPPED,
+        RESCUED,
+        KEPT,
+        SKIPPED
+    }
+}
@@ -0,0 +1,117 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.util.function.ThrowingConsumer;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * S3-совместимое объектное хранилище: AWS S3, MinIO, LocalStack. Ключи раскладываются так же, как файлы
+ * на диске: {@code ab/cd/abcd...}. Бин создается в {@code S3StorageConfig}, если задан {@code avatars.storage.s3.bucket}.
+ */
+public class S3AvatarStorage implements AvatarStorage {
+
+    public static final String NAME = "s3";
+
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3AvatarStorage(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Объект перезаписывается, даже если уже есть: время изменения обновляется, и сборщик мусора не удалит
+     * содержимое, на которое ссылается еще не закоммиченный перенос.
+     */
+    @Override
+    public void put(String contentHash, Path source) {
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key(contentHash))
+                        .build(),
+                RequestBody.fromFile(source));
+    }
+
+    @Override
+    public boolean read(String contentHash, ThrowingConsumer<InputStream> consumer) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key(contentHash))
+                .build();
+        try (ResponseInputStream<GetObjectResponse> is = s3Client.getObject(request)) {
+            consumer.accept(is);
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String contentHash) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucket)
+                .key(key(contentHash))
+                .build());
+    }
+
+    /**
+     * Список объектов читается страницами по мере обхода потока.
+     */
+    @Override
+    public Stream<String> findContentHashes(Instant olderThan) {
+        return s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucket).build())
+                .contents()
+                .stream()
+                .filter(object -> object.lastModified().isBefore(olderThan))
+                .map(S3Object::key)
+                .map(key -> key.substring(key.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Блокировок в S3 нет, поэтому время изменения перечитывается прямо перед проверкой ссылок: объект,
+     * перезаписанный переносом после обхода списка, не удаляется. Остается окно между этой проверкой и удалением.
+     */
+    @Override
+    public boolean deleteUnreferenced(String contentHash, Instant olderThan, BooleanSupplier unreferenced) {
+        Instant lastModified;
+        try {
+            lastModified = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key(contentHash))
+                    .build()).lastModified();
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+        if (!lastModified.isBefore(olderThan) || !unreferenced.getAsBoolean()) {
+            return false;
+        }
+        delete(contentHash);
+        return true;
+    }
+
+    static String key(String contentHash) {
+        return contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Результат записи в хранилище.
+ *
+ * @param created false, если такое же содержимое уже лежало в хранилище и новый файл не понадобился
+ */
+public record StoredFile(String contentHash, Path path, long size, boolean created) {
+}
@@ -4,4 +4,83 @@
 CREATE INDEX student_name_index ON student (name);
 
 -- changeset dshishkin:2
-CREATE INDEX faculty_name_color_index ON faculty (name, color);
\ No newline at end of file
+CREATE INDEX faculty_name_color_index ON faculty (name, color);
+
+-- changeset dshishkin:3
+ALTER TABLE avatar ADD COLUMN content_hash VARCHAR(64);
+
+-- changeset dshishkin:4
+CREATE TABLE avatar_data (
+    avatar_id BIGINT PRIMARY KEY REFERENCES avatar (id) ON DELETE CASCADE,
+    data OID
+);
+INSERT INTO avatar_data (avatar_id, data) SELECT id, data FROM avatar WHERE data IS NOT NULL;
+ALTER TABLE avatar DROP COLUMN data;
+
+-- changeset dshishkin:5
+CREATE INDEX avatar_content_hash_index ON avatar (content_hash);
+
+-- changeset dshishkin:6
+ALTER TABLE student ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE faculty ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- changeset dshishkin:7
+CREATE INDEX student_name_pattern_index ON student (name text_pattern_ops);
+
+-- changeset dshishkin:8
+CREATE SEQUENCE IF NOT EXISTS student_seq;
+CREATE SEQUENCE IF NOT EXISTS faculty_seq;
+CREATE SEQUENCE IF NOT EXISTS avatar_seq;
+ALTER SEQUENCE student_seq INCREMENT BY 50;
+ALTER SEQUENCE faculty_seq INCREMENT BY 50;
+ALTER SEQUENCE avatar_seq INCREMENT BY 50;
+SELECT setval('student_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM student) + 50, (SELECT last_value FROM student_seq)));
+SELECT setval('faculty_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM faculty) + 50, (SELECT last_value FROM faculty_seq)));
+SELECT setval('avatar_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM avatar) + 50, (SELECT last_value FROM avatar_seq)));
+
+-- changeset dshishkin:9
+CREATE INDEX student_age_id_index ON student (age, id);
+CREATE INDEX student_faculty_id_index ON student (faculty_id, id);
+
+-- changeset dshishkin:10
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX student_name_lower_trgm_index ON student USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX student_name_lower_pattern_index ON student (lower(name) text_pattern_ops);
+CREATE INDEX faculty_name_upper_index ON faculty (upper(name));
+CREATE INDEX faculty_color_upper_index ON faculty (upper(color));
+
+-- changeset dshishkin:11
+ALTER TABLE avatar ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'READY';
+CREATE SEQUENCE avatar_outbox_seq INCREMENT BY 50;
+CREATE TABLE avatar_outbox (
+    id BIGINT PRIMARY KEY,
+    avatar_id BIGINT NOT NULL REFERENCES avatar (id) ON DELETE CASCADE,
+    content_hash VARCHAR(64) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX avatar_outbox_available_at_index ON avatar_outbox (available_at, id);
+CREATE INDEX avatar_outbox_avatar_id_index ON avatar_outbox (avatar_id);
+
+-- changeset dshishkin:12
+ALTER TABLE avatar ADD COLUMN storage VARCHAR(16) NOT NULL DEFAULT 'file';
+ALTER TABLE avatar ADD COLUMN last_accessed_at TIMESTAMP WITH TIME ZONE;
+UPDATE avatar SET last_accessed_at = now();
+CREATE INDEX avatar_storage_last_accessed_at_index ON avatar (storage, last_accessed_at);
+CREATE TABLE avatar_blob (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    data OID NOT NULL
+);
+
+-- changeset dshishkin:13
+-- Время последней записи содержимого: сборщик мусора не трогает недавно записанное, как и файлы на диске
+ALTER TABLE avatar_blob ADD COLUMN touched_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+CREATE INDEX avatar_blob_touched_at_index ON avatar_blob (touched_at);
+
+-- changeset dshishkin:14
+-- Копии в avatar_data разбирает LegacyAvatarDataMigration: удаляет те, чей файл на месте, остальные переносит
+-- в avatar_blob. Таблица удаляется, только когда она пуста, иначе changeset повторяется при следующем запуске.
+-- preconditions onFail:CONTINUE
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM avatar_data
+DROP TABLE avatar_data;
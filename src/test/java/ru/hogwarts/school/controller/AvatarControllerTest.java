@@ -0,0 +1,180 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.function.ThrowingConsumer;
+import ru.hogwarts.school.metrics.AvatarMetrics;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarThumbnailService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = AvatarController.class, properties = "avatars.download.non-blocking=false")
+public class AvatarControllerTest {
+
+    private static final String CONTENT_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AvatarService avatarService;
+
+    @MockitoBean
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @MockitoBean
+    private AvatarMetrics avatarMetrics;
+
+    @TempDir
+    private Path tempDir;
+
+    private Avatar avatar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("avatar.png"), "hello", StandardCharsets.UTF_8);
+        avatar = new Avatar(1L, file.toString(), 5L, "image/png", null);
+        avatar.setContentHash(CONTENT_HASH);
+        avatar.setStatus(AvatarStatus.READY);
+        when(avatarService.findAvatar(1L)).thenReturn(avatar);
+    }
+
+    @Test
+    void whenDownloadAvatarFromFile_thenShouldReturnFileWithValidators() throws Exception {
+        mockMvc.perform(get("/avatar/1/from_file"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CONTENT_HASH + "\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string("hello"));
+    }
+
+    @Test
+    void whenDownloadAvatarWithMatchingEtag_thenShouldReturnNotModified() throws Exception {
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + CONTENT_HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void whenDownloadAvatarWithRange_thenShouldReturnPartialContent() throws Exception {
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/5"))
+                .andExpect(content().string("ell"));
+
+        verify(avatarMetrics).recordDownload("file", 3);
+    }
+
+    @Test
+    void whenAvatarIsInOtherStorage_thenShouldStreamContentFromIt() throws Exception {
+        Avatar avatar = new Avatar(2L, tempDir.resolve("moved.png").toString(), 5L, "image/png", null);
+        avatar.setContentHash(CONTENT_HASH);
+        avatar.setStorage("s3");
+        when(avatarService.findAvatar(2L)).thenReturn(avatar);
+        when(avatarService.readContent(eq(avatar), any())).thenAnswer(invocation -> {
+            ThrowingConsumer<InputStream> consumer = invocation.getArgument(1);
+            consumer.accept(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+            return true;
+        });
+
+        mockMvc.perform(get("/avatar/2/from_db"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CONTENT_HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                .andExpect(content().string("hello"));
+
+        verify(avatarService).recordAccess(2L);
+        verify(avatarMetrics).recordDownload("s3", 5);
+    }
+
+    @Test
+    void whenDownloadAvatarWithUnsatisfiableRange_thenShouldReturnRangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .header(HttpHeaders.RANGE, "bytes=10-20"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */5"));
+    }
+
+    @Test
+    void whenDownloadAvatarWithThumbnailSize_thenShouldReturnThumbnail() throws Exception {
+        Path thumbnail = Files.writeString(tempDir.resolve("avatar_64.jpg"), "tiny", StandardCharsets.UTF_8);
+        when(avatarThumbnailService.isSupportedSize(64)).thenReturn(true);
+        when(avatarThumbnailService.getThumbnailPath(any(Path.class), eq(64))).thenReturn(thumbnail);
+
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .param("size", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, AvatarThumbnailService.MEDIA_TYPE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CONTENT_HASH + "-64\""))
+                .andExpect(content().string("tiny"));
+    }
+
+    @Test
+    void whenDownloadAvatarWithUnsupportedSize_thenShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .param("size", "100"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenAvatarProcessingFailed_thenShouldNotServeOriginalOrThumbnail() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("broken.png"), "broken", StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve("broken_64.jpg"), "tiny", StandardCharsets.UTF_8);
+        Avatar failed = new Avatar(3L, file.toString(), 6L, "image/png", null);
+        failed.setContentHash(CONTENT_HASH);
+        failed.setStatus(AvatarStatus.FAILED);
+        when(avatarService.findAvatar(3L)).thenReturn(failed);
+        when(avatarThumbnailService.isSupportedSize(64)).thenReturn(true);
+        when(avatarThumbnailService.getThumbnailPath(any(Path.class), eq(64))).thenReturn(tempDir.resolve("broken_64.jpg"));
+
+        mockMvc.perform(get("/avatar/3/from_file"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/avatar/3/from_file")
+                        .param("size", "64"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/avatar/3/from_db"))
+                .andExpect(status().isNotFound());
+
+        verify(avatarService, never()).recordAccess(3L);
+        verify(avatarService, never()).readContent(eq(failed), any());
+    }
+
+    @Test
+    void whenAvatarPending_thenShouldServeOriginalInsteadOfThumbnail() throws Exception {
+        avatar.setStatus(AvatarStatus.PENDING);
+        when(avatarThumbnailService.isSupportedSize(64)).thenReturn(true);
+        when(avatarThumbnailService.getThumbnailPath(any(Path.class), eq(64))).thenReturn(tempDir.resolve("avatar_64.jpg"));
+
+        mockMvc.perform(get("/avatar/1/from_file")
+                        .param("size", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                .andExpect(content().string("hello"));
+    }
+}
@@ -0,0 +1,142 @@
+package ru.hogwarts.school.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-запросов на эндпоинт не должно зависеть от числа студентов и факультетов в ответе.
+ * Студенты разложены по нескольким факультетам: при N+1 запросов стало бы больше.
+ */
+@SpringBootTest(properties = "path.to.avatars.folder=${java.io.tmpdir}/avatars-statement-count-test")
+@AutoConfigureMockMvc
+public class EndpointStatementCountTest {
+
+    private static final int FACULTIES = 3;
+    private static final int STUDENTS = 6;
+    private static final int AGE = 17;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics statistics;
+    private final List<Faculty> faculties = new ArrayList<>();
+    private final List<Student> students = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String suffix = UUID.randomUUID().toString();
+        for (int i = 0; i < FACULTIES; i++) {
+            faculties.add(facultyRepository.save(new Faculty(null, "Факультет " + i + " " + suffix, "цвет " + i)));
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student(null, "Студент " + i + " " + suffix, AGE);
+            student.setFaculty(faculties.get(i % FACULTIES));
+            students.add(studentRepository.save(student));
+        }
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll(students);
+        facultyRepository.deleteAll(faculties);
+    }
+
+    @Test
+    void getStudentById() throws Exception {
+        assertStatements(1, get("/student/{id}", students.get(0).getId()));
+    }
+
+    @Test
+    void getAllStudents() throws Exception {
+        assertStatements(1, get("/student").param("limit", "100"));
+    }
+
+    @Test
+    void getStudentsByAge() throws Exception {
+        assertStatements(1, get("/student").param("age", String.valueOf(AGE)).param("limit", "100"));
+    }
+
+    @Test
+    void getStudentsByAgeBetween() throws Exception {
+        assertStatements(1, get("/student").param("minAge", String.valueOf(AGE)).param("maxAge", String.valueOf(AGE + 1)));
+    }
+
+    @Test
+    void getFiveLatestStudents() throws Exception {
+        assertStatements(1, get("/student/five_latest_students"));
+    }
+
+    @Test
+    void getFacultyByStudentName() throws Exception {
+        assertStatements(1, get("/student/faculty_by_student").param("name", students.get(0).getName()));
+    }
+
+    @Test
+    void searchStudents() throws Exception {
+        assertStatements(1, get("/student/search").param("q", "студент"));
+    }
+
+    @Test
+    void getStudentsByFacultyName() throws Exception {
+        // Поиск факультета по имени и одна выборка студентов вместе с факультетом
+        assertStatements(2, get("/faculty/students_by_faculty").param("name", faculties.get(0).getName()));
+    }
+
+    @Test
+    void getAllFaculties() throws Exception {
+        assertStatements(1, get("/faculty").param("limit", "100"));
+    }
+
+    @Test
+    void getFacultyStats() throws Exception {
+        // Все агрегаты считаются одним запросом с GROUP BY
+        assertStatements(1, get("/faculty/stats"));
+    }
+
+    @Test
+    void getAvatars() throws Exception {
+        assertStatements(1, get("/avatar/all").param("limit", "100"));
+    }
+
+    private void assertStatements(long expected, MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+    }
+}
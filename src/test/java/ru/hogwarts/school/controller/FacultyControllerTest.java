@@ -9,8 +9,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentView;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.service.ExportService;
 import ru.hogwarts.school.service.FacultyService;
 
 import java.util.Arrays;
@@ -31,6 +35,9 @@ public class FacultyControllerTest {
     @MockitoBean
     private FacultyService facultyService;
 
+    @MockitoBean
+    private ExportService exportService;
+
     @InjectMocks
     private FacultyController facultyController;
 
@@ -60,26 +67,26 @@ public class FacultyControllerTest {
 
     @Test
     void whenGetStudentsByFacultyName_thenShouldReturnStudentsList() throws Exception {
-        Student student1 = new Student(31L, "Гарри Поттер", 11);
-        Student student2 = new Student(32L, "Гермиона Грейнджер", 12);
-        Student student3 = new Student(33L, "Рон Уизли", 11);
-        List<Student> students = Arrays.asList(student1, student2, student3);
+        StudentView student1 = new StudentView(31L, "Гарри Поттер", 11, null, null);
+        StudentView student2 = new StudentView(32L, "Гермиона Грейнджер", 12, null, null);
+        StudentView student3 = new StudentView(33L, "Рон Уизли", 11, null, null);
+        List<StudentView> students = Arrays.asList(student1, student2, student3);
 
-        when(facultyService.getStudentsByFacultyName("Гриффиндор")).thenReturn(students);
+        when(facultyService.getStudentsByFacultyName("Гриффиндор", null, null)).thenReturn(new KeysetPage<>(students, null));
 
         mockMvc.perform(get("/faculty/students_by_faculty")
                         .param("name", "Гриффиндор"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(3))
-                .andExpect(jsonPath("$[0].name").value(student1.getName()))
-                .andExpect(jsonPath("$[1].name").value(student2.getName()))
-                .andExpect(jsonPath("$[2].name").value(student3.getName()));
+                .andExpect(jsonPath("$[0].name").value(student1.name()))
+                .andExpect(jsonPath("$[1].name").value(student2.name()))
+                .andExpect(jsonPath("$[2].name").value(student3.name()));
     }
 
     @Test
     void whenGetFacultiesByName_thenShouldReturnFoundFaculties() throws Exception {
-        Faculty faculty = new Faculty(345L, "Гриффиндор", "Красный");
-        List<Faculty> faculties = Arrays.asList(faculty);
+        FacultyView faculty = new FacultyView(345L, "Гриффиндор", "Красный", 0L);
+        List<FacultyView> faculties = Arrays.asList(faculty);
 
         when(facultyService.getFacultiesByName("Гриффиндор")).thenReturn(faculties);
 
@@ -91,8 +98,8 @@ public class FacultyControllerTest {
 
     @Test
     void whenGetFacultiesByColor_thenShouldReturnFoundFaculties() throws Exception {
-        Faculty faculty = new Faculty(345L, "Гриффиндор", "Красный");
-        List<Faculty> faculties = Arrays.asList(faculty);
+        FacultyView faculty = new FacultyView(345L, "Гриффиндор", "Красный", 0L);
+        List<FacultyView> faculties = Arrays.asList(faculty);
 
         when(facultyService.getFacultiesByColor("Красный")).thenReturn(faculties);
 
@@ -104,12 +111,12 @@ public class FacultyControllerTest {
 
     @Test
     void whenGetAllFaculties_thenShouldReturnAllFaculties() throws Exception {
-        Faculty faculty1 = new Faculty(345L, "Гриффиндор", "Красный");
-        Faculty faculty2 = new Faculty(346L, "Слизерин", "Зеленый");
+        FacultyView faculty1 = new FacultyView(345L, "Гриффиндор", "Красный", 0L);
+        FacultyView faculty2 = new FacultyView(346L, "Слизерин", "Зеленый", 0L);
 
-        List<Faculty> faculties = Arrays.asList(faculty1, faculty2);
+        List<FacultyView> faculties = Arrays.asList(faculty1, faculty2);
 
-        when(facultyService.getAllFaculties()).thenReturn(faculties);
+        when(facultyService.getAllFaculties(null, null)).thenReturn(new KeysetPage<>(faculties, null));
 
         mockMvc.perform(get("/faculty"))
                 .andExpect(status().isOk())
@@ -118,7 +125,7 @@ public class FacultyControllerTest {
 
     @Test
     void whenUpdateFaculty_thenShouldReturnUpdatedFaculty() throws Exception {
-        Faculty updatedFaculty = new Faculty(360L, "Гриффиндор новый", "Красный новый");
+        FacultyView updatedFaculty = new FacultyView(360L, "Гриффиндор новый", "Красный новый", 1L);
 
         Long id = 360L;
         String name = "Гриффиндор новый";
@@ -137,22 +144,23 @@ public class FacultyControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(updatedFaculty.getId()))
-                .andExpect(jsonPath("$.name").value(updatedFaculty.getName()))
-                .andExpect(jsonPath("$.color").value(updatedFaculty.getColor()));
+                .andExpect(jsonPath("$.id").value(updatedFaculty.id()))
+                .andExpect(jsonPath("$.name").value(updatedFaculty.name()))
+                .andExpect(jsonPath("$.color").value(updatedFaculty.color()))
+                .andExpect(jsonPath("$.version").value(updatedFaculty.version()));
     }
 
     @Test
     void whenGetFacultyById_thenShouldReturnFaculty() throws Exception {
-        Faculty faculty = new Faculty(362L, "Гриффиндор", "Красный");
+        FacultyView faculty = new FacultyView(362L, "Гриффиндор", "Красный", 0L);
 
         when(facultyService.getFaculty(362L)).thenReturn(faculty);
 
         mockMvc.perform(get("/faculty/362"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(faculty.getId()))
-                .andExpect(jsonPath("$.name").value(faculty.getName()))
-                .andExpect(jsonPath("$.color").value(faculty.getColor()));
+                .andExpect(jsonPath("$.id").value(faculty.id()))
+                .andExpect(jsonPath("$.name").value(faculty.name()))
+                .andExpect(jsonPath("$.color").value(faculty.color()));
     }
 
     @Test
@@ -160,4 +168,22 @@ public class FacultyControllerTest {
         mockMvc.perform(delete("/faculty/362"))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenGetFacultyStats_thenShouldReturnStatsPerFaculty() throws Exception {
+        List<FacultyStats> stats = List.of(
+                new FacultyStats(1L, "Гриффиндор", "Красный", 2L, 17, 17.5, 18, 1L),
+                new FacultyStats(2L, "Слизерин", "Зеленый", 0L, null, null, null, 0L));
+
+        when(facultyService.getFacultyStats()).thenReturn(stats);
+
+        mockMvc.perform(get("/faculty/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].studentCount").value(2))
+                .andExpect(jsonPath("$[0].averageAge").value(17.5))
+                .andExpect(jsonPath("$[0].studentsWithAvatars").value(1))
+                .andExpect(jsonPath("$[1].studentCount").value(0))
+                .andExpect(jsonPath("$[1].minAge").isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.hogwarts.school.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class FileResponseWriterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void whenClientIsSlow_thenAsyncCopyShouldResumeAndWriteRequestedRange() throws Exception {
+        byte[] content = new byte[300 * 1024];
+        new Random(42).nextBytes(content);
+        Path file = Files.write(tempDir.resolve("avatar.png"), content);
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        SlowOutputStream os = new SlowOutputStream();
+
+        os.setWriteListener(new FileResponseWriter.AsyncFileCopy(
+                AsynchronousFileChannel.open(file, READ), os, asyncContext, 1000, 200 * 1024));
+
+        verify(asyncContext, timeout(5000)).complete();
+        byte[] expected = new byte[200 * 1024];
+        System.arraycopy(content, 1000, expected, 0, expected.length);
+        assertThat(os.written.toByteArray()).isEqualTo(expected);
+    }
+
+    /**
+     * Готов к записи через раз; после отказа, как контейнер, вызывает onWritePossible из другого потока.
+     */
+    private static class SlowOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private WriteListener listener;
+        private boolean ready;
+
+        @Override
+        public boolean isReady() {
+            ready = !ready;
+            if (!ready) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        listener.onWritePossible();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+        }
+    }
+}
@@ -9,18 +9,29 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
-import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.ImportError;
+import ru.hogwarts.school.dto.ImportResult;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.exception.VersionConflictException;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetPage;
+import ru.hogwarts.school.service.ExportFormat;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -33,6 +44,12 @@ public class StudentControllerTest {
     @MockitoBean
     private StudentService studentService;
 
+    @MockitoBean
+    private ExportService exportService;
+
+    @MockitoBean
+    private StudentImportService studentImportService;
+
     @InjectMocks
     private StudentController studentController;
 
@@ -62,25 +79,25 @@ public class StudentControllerTest {
 
     @Test
     void whenGetFacultyByStudentName_thenShouldReturnFaculty() throws Exception {
-        Faculty faculty = new Faculty(246L, "Гриффиндор", "Красный");
+        FacultyView faculty = new FacultyView(246L, "Гриффиндор", "Красный", 0L);
 
         when(studentService.findFacultyByStudentName("Гарри Поттер")).thenReturn(faculty);
 
         mockMvc.perform(get("/student/faculty_by_student")
                         .param("name", "Гарри Поттер"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(faculty.getId()))
-                .andExpect(jsonPath("$.name").value(faculty.getName()))
-                .andExpect(jsonPath("$.color").value(faculty.getColor()));
+                .andExpect(jsonPath("$.id").value(faculty.id()))
+                .andExpect(jsonPath("$.name").value(faculty.name()))
+                .andExpect(jsonPath("$.color").value(faculty.color()));
     }
 
     @Test
     void whenGetStudentsByAge_thenShouldReturnFoundStudents() throws Exception {
-        Student student1 = new Student(247L, "Гарри Поттер", 11);
-        Student student2 = new Student(248L, "Рон Уизли", 11);
-        List<Student> students = Arrays.asList(student1, student2);
+        StudentView student1 = new StudentView(247L, "Гарри Поттер", 11, null, null);
+        StudentView student2 = new StudentView(248L, "Рон Уизли", 11, null, null);
+        List<StudentView> students = Arrays.asList(student1, student2);
 
-        when(studentService.findStudentByAge(11)).thenReturn(students);
+        when(studentService.findStudentByAge(11, null, null)).thenReturn(new KeysetPage<>(students, null));
 
         mockMvc.perform(get("/student")
                         .param("age", "11"))
@@ -92,11 +109,11 @@ public class StudentControllerTest {
 
     @Test
     void whenGetStudentsByAgeRange_thenShouldReturnFoundStudents() throws Exception {
-        Student student1 = new Student(249L, "Гарри Поттер", 11);
-        Student student2 = new Student(250L, "Гермиона Грейнджер", 12);
-        List<Student> students = Arrays.asList(student1, student2);
+        StudentView student1 = new StudentView(249L, "Гарри Поттер", 11, null, null);
+        StudentView student2 = new StudentView(250L, "Гермиона Грейнджер", 12, null, null);
+        List<StudentView> students = Arrays.asList(student1, student2);
 
-        when(studentService.findByAgeBetween(11, 12)).thenReturn(students);
+        when(studentService.findByAgeBetween(11, 12, null, null)).thenReturn(new KeysetPage<>(students, null));
 
         mockMvc.perform(get("/student")
                         .param("minAge", "11")
@@ -109,26 +126,41 @@ public class StudentControllerTest {
 
     @Test
     void whenGetAllStudents_thenShouldReturnAllStudents() throws Exception {
-        Student student1 = new Student(251L, "Гарри Поттер", 11);
-        Student student2 = new Student(252L, "Гермиона Грейнджер", 12);
-        Student student3 = new Student(253L, "Рон Уизли", 11);
+        StudentView student1 = new StudentView(251L, "Гарри Поттер", 11, null, null);
+        StudentView student2 = new StudentView(252L, "Гермиона Грейнджер", 12, null, null);
+        StudentView student3 = new StudentView(253L, "Рон Уизли", 11, null, null);
 
-        List<Student> students = Arrays.asList(student1, student2, student3);
+        List<StudentView> students = Arrays.asList(student1, student2, student3);
 
-        when(studentService.getAllStudents()).thenReturn(students);
+        when(studentService.getAllStudents(null, null)).thenReturn(new KeysetPage<>(students, null));
 
         mockMvc.perform(get("/student"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(3))
-                .andExpect(jsonPath("$[0].name").value(student1.getName()))
-                .andExpect(jsonPath("$[1].name").value(student2.getName()))
-                .andExpect(jsonPath("$[2].name").value(student3.getName()));
+                .andExpect(jsonPath("$[0].name").value(student1.name()))
+                .andExpect(jsonPath("$[1].name").value(student2.name()))
+                .andExpect(jsonPath("$[2].name").value(student3.name()));
     }
 
+    @Test
+    void whenGetStudentsPage_thenShouldReturnNextCursorHeader() throws Exception {
+        StudentView student1 = new StudentView(251L, "Гарри Поттер", 11, null, null);
+        StudentView student2 = new StudentView(252L, "Гермиона Грейнджер", 12, null, null);
+
+        when(studentService.getAllStudents("MjUw", 2))
+                .thenReturn(new KeysetPage<>(Arrays.asList(student1, student2), "MjUy"));
+
+        mockMvc.perform(get("/student")
+                        .param("cursor", "MjUw")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "MjUy"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
 
     @Test
     void whenUpdateStudent_thenShouldReturnUpdatedStudent() throws Exception {
-        Student updatedStudent = new Student(261L, "Гарри Поттер Обновленный", 12);
+        StudentView updatedStudent = new StudentView(261L, "Гарри Поттер Обновленный", 12, 1L, null);
 
         Long id = 1L;
         String name = "Гарри Поттер Обновленный";
@@ -147,22 +179,66 @@ public class StudentControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(updatedStudent.getId()))
-                .andExpect(jsonPath("$.name").value(updatedStudent.getName()))
-                .andExpect(jsonPath("$.age").value(updatedStudent.getAge()));
+                .andExpect(jsonPath("$.id").value(updatedStudent.id()))
+                .andExpect(jsonPath("$.name").value(updatedStudent.name()))
+                .andExpect(jsonPath("$.age").value(updatedStudent.age()));
+    }
+
+    @Test
+    void whenUpdateStudentWithoutVersion_thenShouldReturnPersistedVersionAndFaculty() throws Exception {
+        JSONObject facultyObject = new JSONObject();
+        facultyObject.put("id", 246L);
+        JSONObject studentObject = new JSONObject();
+        studentObject.put("id", 261L);
+        studentObject.put("name", "Гарри Поттер");
+        studentObject.put("age", 12);
+        studentObject.put("faculty", facultyObject);
+
+        when(studentService.updateStudent(any(Student.class))).thenReturn(new StudentView(261L, "Гарри Поттер", 12, 4L,
+                new FacultyView(246L, "Гриффиндор", "Красный", 0L)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/student")
+                        .content(studentObject.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4))
+                .andExpect(jsonPath("$.faculty.name").value("Гриффиндор"))
+                .andExpect(jsonPath("$.faculty.color").value("Красный"));
+    }
+
+    @Test
+    void whenUpdateStudentWithStaleVersion_thenShouldReturnConflict() throws Exception {
+        JSONObject studentObject = new JSONObject();
+        studentObject.put("id", 261L);
+        studentObject.put("name", "Гарри Поттер");
+        studentObject.put("age", 12);
+        studentObject.put("version", 3L);
+
+        when(studentService.updateStudent(any(Student.class))).thenThrow(new VersionConflictException(261L));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/student")
+                        .content(studentObject.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
     }
 
     @Test
     void whenGetStudentById_thenShouldReturnStudent() throws Exception {
-        Student student = new Student(1L, "Гарри Поттер", 11);
+        StudentView student = new StudentView(1L, "Гарри Поттер", 11, 0L,
+                new FacultyView(246L, "Гриффиндор", "Красный", 0L));
 
         when(studentService.getStudent(1L)).thenReturn(student);
 
         mockMvc.perform(get("/student/1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(student.getId()))
-                .andExpect(jsonPath("$.name").value(student.getName()))
-                .andExpect(jsonPath("$.age").value(student.getAge()));
+                .andExpect(jsonPath("$.id").value(student.id()))
+                .andExpect(jsonPath("$.name").value(student.name()))
+                .andExpect(jsonPath("$.age").value(student.age()))
+                .andExpect(jsonPath("$.faculty.name").value("Гриффиндор"));
     }
 
     @Test
@@ -189,4 +265,55 @@ public class StudentControllerTest {
                         .param("name", "Несуществующий cтудент"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void whenExportStudentsAsCsv_thenShouldStreamWithCsvContentType() throws Exception {
+        mockMvc.perform(get("/student/export")
+                        .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"));
+
+        verify(exportService).exportStudents(eq(ExportFormat.CSV), any());
+    }
+
+    @Test
+    void whenExportStudentsWithUnknownFormat_thenShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/student/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenImportStudentsCsv_thenShouldReturnImportResult() throws Exception {
+        when(studentImportService.importCsv(any())).thenReturn(
+                new ImportResult(1, 1, List.of(new ImportError(2, "Недопустимый возраст"))));
+
+        mockMvc.perform(post("/student/bulk")
+                        .contentType("text/csv")
+                        .content("name,age,faculty_id\nГарри Поттер,11,\nРон Уизли,-1,\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2));
+    }
+
+    @Test
+    void whenSearchStudents_thenShouldReturnFoundStudents() throws Exception {
+        StudentView student = new StudentView(1L, "Гарри Поттер", 17, null, null);
+
+        when(studentService.searchByName("потт", null)).thenReturn(List.of(student));
+
+        mockMvc.perform(get("/student/search").param("q", "потт"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"));
+    }
+
+    @Test
+    void whenAutocompleteNames_thenShouldReturnNames() throws Exception {
+        when(studentService.autocompleteNames("гер", 5)).thenReturn(List.of("Гермиона Грейнджер"));
+
+        mockMvc.perform(get("/student/autocomplete").param("q", "гер").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("Гермиона Грейнджер"));
+    }
 }
@@ -0,0 +1,116 @@
+package ru.hogwarts.school.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.setCurrentTransactionReadOnly;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(1);
+    private static final Duration STALE_AFTER = Duration.ofSeconds(10);
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final Clock clock = mock(Clock.class);
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstConnection = mock(Connection.class);
+    private final Connection secondConnection = mock(Connection.class);
+
+    private DataSource firstDataSource;
+    private Replica first;
+    private Replica second;
+    private ReadWriteRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        firstDataSource = mock(DataSource.class);
+        when(firstDataSource.getConnection()).thenReturn(firstConnection);
+        DataSource secondDataSource = mock(DataSource.class);
+        when(secondDataSource.getConnection()).thenReturn(secondConnection);
+        when(clock.instant()).thenReturn(NOW);
+        first = new Replica("replica-1", firstDataSource, STALE_AFTER, clock);
+        second = new Replica("replica-2", secondDataSource, STALE_AFTER, clock);
+        dataSource = new ReadWriteRoutingDataSource(primary, List.of(first, second));
+    }
+
+    @AfterEach
+    void tearDown() {
+        setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void whenNotReadOnly_thenShouldUsePrimary() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void whenReadOnly_thenShouldAlternateReplicas() throws SQLException {
+        setCurrentTransactionReadOnly(true);
+
+        assertThat(List.of(dataSource.getConnection(), dataSource.getConnection()))
+                .containsExactlyInAnyOrder(firstConnection, secondConnection);
+    }
+
+    @Test
+    void whenReplicaLagsBehind_thenShouldSkipItUntilItCatchesUp() throws SQLException {
+        setCurrentTransactionReadOnly(true);
+        first.lagChecked(Duration.ofSeconds(5), MAX_LAG);
+
+        assertThat(dataSource.getConnection()).isSameAs(secondConnection);
+        assertThat(dataSource.getConnection()).isSameAs(secondConnection);
+
+        first.lagChecked(Duration.ZERO, MAX_LAG);
+
+        assertThat(List.of(dataSource.getConnection(), dataSource.getConnection()))
+                .containsExactlyInAnyOrder(firstConnection, secondConnection);
+    }
+
+    @Test
+    void whenNoReplicaAvailable_thenShouldFallBackToPrimary() throws SQLException {
+        setCurrentTransactionReadOnly(true);
+        first.lagChecked(Duration.ofSeconds(5), MAX_LAG);
+        second.markUnavailable(new SQLException("down"));
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void whenReplicaRefusesConnection_thenShouldMarkItUnavailableAndUseAnother() throws SQLException {
+        setCurrentTransactionReadOnly(true);
+        when(firstDataSource.getConnection()).thenThrow(new SQLException("refused"));
+
+        assertThat(dataSource.getConnection()).isSameAs(secondConnection);
+        assertThat(dataSource.getConnection()).isSameAs(secondConnection);
+        assertThat(first.isAvailable()).isFalse();
+    }
+
+    @Test
+    void whenLagCheckIsStale_thenShouldSkipReplicaUntilNextCheck() throws SQLException {
+        setCurrentTransactionReadOnly(true);
+        when(clock.instant()).thenReturn(NOW.plus(STALE_AFTER));
+        second.lagChecked(Duration.ZERO, MAX_LAG);
+        when(clock.instant()).thenReturn(NOW.plus(STALE_AFTER).plusSeconds(1));
+
+        assertThat(first.isAvailable()).isFalse();
+        assertThat(dataSource.getConnection()).isSameAs(secondConnection);
+
+        first.lagChecked(Duration.ZERO, MAX_LAG);
+
+        assertThat(first.isAvailable()).isTrue();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AfterCommitBufferTest {
+
+    private final List<List<String>> applied = new ArrayList<>();
+    private final AfterCommitBuffer<List<String>> buffer = new AfterCommitBuffer<>(ArrayList::new, applied::add);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void whenNoTransaction_thenShouldApplyImmediately() {
+        buffer.record(changes -> changes.add("Гарри"));
+
+        assertThat(applied).containsExactly(List.of("Гарри"));
+    }
+
+    @Test
+    void whenTransactionCommits_thenShouldApplyAllChangesOnce() {
+        TransactionSynchronizationManager.initSynchronization();
+        buffer.record(changes -> changes.add("Гарри"));
+        buffer.record(changes -> changes.add("Рон"));
+
+        assertThat(applied).isEmpty();
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(applied).containsExactly(List.of("Гарри", "Рон"));
+        assertThat(TransactionSynchronizationManager.getResource(buffer)).isNull();
+    }
+
+    @Test
+    void whenTransactionRollsBack_thenShouldDiscardChanges() {
+        TransactionSynchronizationManager.initSynchronization();
+        buffer.record(changes -> changes.add("Гарри"));
+
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(applied).isEmpty();
+        assertThat(TransactionSynchronizationManager.getResource(buffer)).isNull();
+    }
+}
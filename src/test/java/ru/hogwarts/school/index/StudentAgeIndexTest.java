@@ -0,0 +1,101 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentAge;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StudentAgeIndexTest {
+
+    private StudentRepository studentRepository;
+    private TransactionTemplate transactionTemplate;
+    private StudentAgeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        when(studentRepository.streamAges()).thenAnswer(invocation -> Stream.of(
+                new StudentAge(1L, 17), new StudentAge(5L, 17), new StudentAge(2L, 18), new StudentAge(3L, 19)));
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        index = new StudentAgeIndex(true, studentRepository, transactionTemplate);
+        index.load();
+    }
+
+    @Test
+    void whenFindIds_thenShouldReturnIdsOfAgeAfterCursor() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.findIds(17, Long.MIN_VALUE, 10)).containsExactly(1L, 5L);
+        assertThat(index.findIds(17, 1L, 10)).containsExactly(5L);
+        assertThat(index.findIds(20, Long.MIN_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void whenFindBetween_thenShouldReturnIdsWithAgesOrderedByAgeAndId() {
+        assertThat(index.findBetween(17, 19, Integer.MIN_VALUE, Long.MIN_VALUE, 3))
+                .containsExactly(new StudentAge(1L, 17), new StudentAge(5L, 17), new StudentAge(2L, 18));
+        assertThat(index.findBetween(17, 19, 18, 2L, 3)).containsExactly(new StudentAge(3L, 19));
+    }
+
+    @Test
+    void whenStudentsChange_thenShouldMoveIdsBetweenAges() {
+        index.studentSaved(7L, 17, true);
+        index.studentUpdated(5L, 19);
+        index.studentRemoved(1L);
+
+        assertThat(index.findIds(17, Long.MIN_VALUE, 10)).containsExactly(7L);
+        assertThat(index.findIds(19, Long.MIN_VALUE, 10)).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void whenAgeIsHuge_thenShouldIndexItWithoutDenseBuckets() {
+        index.studentSaved(8L, Integer.MAX_VALUE, true);
+        index.studentSaved(9L, 1_000_000_000, true);
+
+        assertThat(index.findIds(Integer.MAX_VALUE, Long.MIN_VALUE, 10)).containsExactly(8L);
+        assertThat(index.findBetween(19, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, 10))
+                .extracting(StudentAge::id)
+                .containsExactly(3L, 9L, 8L);
+
+        index.studentRemoved(8L);
+
+        assertThat(index.findIds(Integer.MAX_VALUE, Long.MIN_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void whenRangeIsEmpty_thenShouldReturnNothing() {
+        assertThat(index.findBetween(19, 17, Integer.MIN_VALUE, Long.MIN_VALUE, 10)).isEmpty();
+        assertThat(index.findBetween(17, 18, 19, Long.MIN_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void whenStudentChangesDuringLoad_thenShouldApplyItToLoadedSnapshot() {
+        StudentAgeIndex reloaded = new StudentAgeIndex(true, studentRepository, transactionTemplate);
+        when(studentRepository.streamAges()).thenAnswer(invocation -> {
+            // Коммит во время загрузки: выборка его уже не видит
+            reloaded.studentUpdated(1L, 18);
+            reloaded.studentSaved(9L, 17, true);
+            return Stream.of(new StudentAge(1L, 17), new StudentAge(5L, 17), new StudentAge(2L, 18));
+        });
+
+        reloaded.load();
+
+        assertThat(reloaded.findIds(17, Long.MIN_VALUE, 10)).containsExactly(5L, 9L);
+        assertThat(reloaded.findIds(18, Long.MIN_VALUE, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void whenDisabled_thenShouldNotLoad() {
+        StudentAgeIndex disabled = new StudentAgeIndex(false, studentRepository, transactionTemplate);
+        disabled.load();
+
+        assertThat(disabled.isReady()).isFalse();
+    }
+}
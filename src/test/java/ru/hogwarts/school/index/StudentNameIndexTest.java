@@ -0,0 +1,43 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StudentNameIndexTest {
+
+    private StudentNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        StudentRepository studentRepository = mock(StudentRepository.class);
+        when(studentRepository.streamDistinctNames()).thenAnswer(invocation -> Stream.of(
+                "Гарри Поттер", "Гермиона Грейнджер", "Джинни Уизли", "Рон Уизли", "герберт"));
+        index = new StudentNameIndex(true, studentRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        index.load();
+    }
+
+    @Test
+    void whenComplete_thenShouldReturnNamesWithPrefixIgnoringCase() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.complete("ГЕР", 10)).containsExactly("герберт", "Гермиона Грейнджер");
+        assertThat(index.complete("г", 2)).containsExactly("Гарри Поттер", "герберт");
+        assertThat(index.complete("драко", 10)).isEmpty();
+    }
+
+    @Test
+    void whenStudentNamed_thenShouldSuggestNewName() {
+        index.studentNamed("Драко Малфой");
+
+        assertThat(index.complete("драко", 10)).containsExactly("Драко Малфой");
+    }
+}
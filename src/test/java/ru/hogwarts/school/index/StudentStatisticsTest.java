@@ -0,0 +1,109 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.FacultyView;
+import ru.hogwarts.school.dto.StudentTotals;
+import ru.hogwarts.school.dto.StudentView;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StudentStatisticsTest {
+
+    private static final FacultyView GRYFFINDOR = new FacultyView(1L, "Гриффиндор", "красный", 0L);
+
+    private StudentRepository studentRepository;
+    private StudentStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        when(studentRepository.getTotals()).thenReturn(new StudentTotals(4, 60));
+        when(studentRepository.findFiveLatestViews()).thenReturn(List.of(
+                new StudentView(10L, "Гарри Поттер", 15, 0L, GRYFFINDOR),
+                new StudentView(9L, "Рон Уизли", 15, 0L, GRYFFINDOR)));
+        statistics = new StudentStatistics(true, studentRepository);
+        statistics.load();
+    }
+
+    @Test
+    void whenLoaded_thenShouldAnswerFromMemory() {
+        assertThat(statistics.isReady()).isTrue();
+        assertThat(statistics.count()).isEqualTo(4);
+        assertThat(statistics.averageAge()).isEqualTo(15.0);
+        assertThat(statistics.latest()).extracting(StudentView::id).containsExactly(10L, 9L);
+        assertThat(statistics.latest()).extracting(StudentView::id).containsExactly(10L, 9L);
+
+        verify(studentRepository, times(1)).getTotals();
+        verify(studentRepository, times(1)).findFiveLatestViews();
+    }
+
+    @Test
+    void whenStudentsCreatedAndRemoved_thenShouldAdjustCountersIncrementally() {
+        statistics.studentCreated(11L, 20);
+        statistics.studentRemoved(9L, 15);
+
+        assertThat(statistics.count()).isEqualTo(4);
+        assertThat(statistics.averageAge()).isEqualTo(16.25);
+        verify(studentRepository, times(1)).getTotals();
+    }
+
+    @Test
+    void whenStudentCreated_thenShouldReloadLatestOnNextRead() {
+        statistics.latest();
+
+        statistics.studentCreated(11L, 20);
+        statistics.latest();
+
+        verify(studentRepository, times(2)).findFiveLatestViews();
+    }
+
+    @Test
+    void whenUpdatedWithPreviousAge_thenShouldAdjustAgeSumWithoutQuery() {
+        statistics.studentUpdated(1L, 15, 19);
+
+        assertThat(statistics.averageAge()).isEqualTo(16.0);
+        verify(studentRepository, times(1)).getTotals();
+    }
+
+    @Test
+    void whenPreviousAgeUnknown_thenShouldReconcileOnNextRead() {
+        when(studentRepository.getTotals()).thenReturn(new StudentTotals(4, 64));
+
+        statistics.studentChanged(1L);
+
+        assertThat(statistics.averageAge()).isEqualTo(16.0);
+        assertThat(statistics.averageAge()).isEqualTo(16.0);
+        verify(studentRepository, times(2)).getTotals();
+    }
+
+    @Test
+    void whenReconciled_thenShouldCorrectDrift() {
+        when(studentRepository.getTotals()).thenReturn(new StudentTotals(5, 80));
+
+        statistics.reconcile();
+
+        assertThat(statistics.count()).isEqualTo(5);
+        assertThat(statistics.averageAge()).isEqualTo(16.0);
+    }
+
+    @Test
+    void whenFacultyOfLatestStudentChanged_thenShouldReloadLatest() {
+        statistics.latest();
+
+        statistics.facultyChanged(2L);
+        statistics.latest();
+        verify(studentRepository, times(1)).findFiveLatestViews();
+
+        statistics.facultyChanged(1L);
+        statistics.latest();
+        verify(studentRepository, times(2)).findFiveLatestViews();
+    }
+}
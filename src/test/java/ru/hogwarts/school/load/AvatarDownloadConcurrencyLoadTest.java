@@ -0,0 +1,178 @@
+package ru.hogwarts.school.load;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает, сколько медленных клиентов сервер обслуживает одновременно.
+ * Запускается в режимах {@code ./gradlew loadTest} (потоки Tomcat), {@code ./gradlew loadTest -PvirtualThreads}
+ * и {@code ./gradlew loadTest -PblockingDownloads} (блокирующая запись ответа).
+ * Sendfile отключен, как и при HTTPS: иначе файл отдает ядро и поток запроса не занят вовсе.
+ * Файл больше буферов сокетов на loopback, поэтому медленный клиент действительно держит поток записи.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "path.to.avatars.folder=${java.io.tmpdir}/avatars-load-test",
+                "server.tomcat.threads.max=" + AvatarDownloadConcurrencyLoadTest.PLATFORM_THREADS
+        })
+public class AvatarDownloadConcurrencyLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarDownloadConcurrencyLoadTest.class);
+
+    static final int PLATFORM_THREADS = 50;
+
+    private static final int CLIENTS = 400;
+    private static final int AVATAR_SIZE = 8 * 1024 * 1024;
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final long READ_PAUSE_MILLIS = 50;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${avatars.download.non-blocking:true}")
+    private boolean nonBlocking;
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> disableSendfile() {
+            return factory -> factory.addConnectorCustomizers(connector -> connector.setProperty("useSendfile", "false"));
+        }
+
+        /**
+         * Запрос считается активным до конца передачи, в том числе когда ответ дописывается асинхронно.
+         */
+        @Bean
+        Filter inFlightCounter() {
+            return (request, response, chain) -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    if (request.isAsyncStarted()) {
+                        request.getAsyncContext().addListener(new InFlightListener());
+                    } else {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            };
+        }
+    }
+
+    private static class InFlightListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    @Test
+    void whenManySlowClientsDownload_thenServerShouldNotBeCappedByRequestThreads() throws Exception {
+        Student student = studentRepository.save(new Student(null, "Нагрузочный студент", 17));
+        try {
+            assertThat(AvatarUploads.upload(restTemplate, student.getId(), AVATAR_SIZE).getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+            peakInFlight.set(0);
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://localhost:" + port + "/avatar/" + student.getId() + "/from_file");
+            ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+            try {
+                List<Future<Long>> downloads = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                    downloads.add(executor.submit(() -> slowDownload(client, uri)));
+                }
+                for (Future<Long> download : downloads) {
+                    assertThat(download.get()).isEqualTo((long) AVATAR_SIZE);
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            studentRepository.delete(student);
+        }
+
+        int peak = peakInFlight.get();
+        logger.info("Virtual threads: {}, non-blocking: {}, peak concurrent downloads: {} of {} clients",
+                virtualThreads, nonBlocking, peak, CLIENTS);
+        if (virtualThreads || nonBlocking) {
+            assertThat(peak).isGreaterThan(PLATFORM_THREADS * 2);
+        } else {
+            assertThat(peak).isLessThanOrEqualTo(PLATFORM_THREADS);
+        }
+    }
+
+    private long slowDownload(HttpClient client, URI uri) throws Exception {
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+        long total = 0;
+        byte[] buffer = new byte[READ_CHUNK];
+        try (InputStream body = response.body()) {
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                total += read;
+                Thread.sleep(READ_PAUSE_MILLIS);
+            }
+        }
+        return total;
+    }
+}
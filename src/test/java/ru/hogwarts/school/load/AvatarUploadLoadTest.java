@@ -0,0 +1,95 @@
+package ru.hogwarts.school.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "path.to.avatars.folder=${java.io.tmpdir}/avatars-load-test")
+public class AvatarUploadLoadTest {
+
+    private static final int CONCURRENT_UPLOADS = 100;
+    private static final int AVATAR_SIZE = 5 * 1024 * 1024;
+    private static final long MAX_HEAP_GROWTH = 256L * 1024 * 1024;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Test
+    void whenUploadingConcurrently_thenHeapStaysBelowSizeOfAllUploads() throws Exception {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+            students.add(studentRepository.save(new Student(null, "Нагрузочный студент " + i, 17)));
+        }
+        byte[] payload = new byte[AVATAR_SIZE];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        System.gc();
+        long baseline = oldGenUsage();
+        resetPeakUsage();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_UPLOADS);
+        try {
+            List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+            for (Student student : students) {
+                responses.add(executor.submit(() -> AvatarUploads.upload(restTemplate, student.getId(), payload)));
+            }
+            for (Future<ResponseEntity<String>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            executor.shutdown();
+            studentRepository.deleteAll(students);
+        }
+
+        // Старая реализация держала по две копии каждого файла: 100 * 5 МБ * 2 = 1 ГБ.
+        assertThat(oldGenPeak() - baseline).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    // Массивы по 5 МБ в G1 сразу попадают в старое поколение, поэтому меряем именно его:
+    // пики eden зависят от частоты сборок, а не от того, сколько копий файла мы держим.
+    private static long oldGenUsage() {
+        return oldGenPools().stream()
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+
+    private static void resetPeakUsage() {
+        oldGenPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long oldGenPeak() {
+        return oldGenPools().stream()
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static List<MemoryPoolMXBean> oldGenPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .filter(pool -> pool.getName().contains("Old Gen") || pool.getName().contains("Tenured"))
+                .toList();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.hogwarts.school.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пока идет шквал загрузок, числом больше пула соединений, остальные эндпоинты должны отвечать быстро:
+ * загрузка держит соединение только на время короткой записи метаданных.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "path.to.avatars.folder=${java.io.tmpdir}/avatars-load-test",
+                "spring.datasource.hikari.maximum-pool-size=" + AvatarUploadStormLoadTest.POOL_SIZE,
+                "spring.datasource.hikari.connection-timeout=2000"
+        })
+public class AvatarUploadStormLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarUploadStormLoadTest.class);
+
+    static final int POOL_SIZE = 5;
+
+    private static final int CONCURRENT_UPLOADS = POOL_SIZE * 6;
+    private static final int AVATAR_SIZE = 5 * 1024 * 1024;
+    private static final long MAX_PROBE_MILLIS = 1000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Test
+    void whenUploadsOutnumberConnections_thenOtherEndpointsStayResponsive() throws Exception {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+            students.add(studentRepository.save(new Student(null, "Загружающий студент " + i, 17)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_UPLOADS);
+        long slowestProbe = 0;
+        try {
+            List<Future<ResponseEntity<String>>> uploads = new ArrayList<>();
+            for (Student student : students) {
+                uploads.add(executor.submit(() -> AvatarUploads.upload(restTemplate, student.getId(), AVATAR_SIZE)));
+            }
+            while (uploads.stream().anyMatch(upload -> !upload.isDone())) {
+                long start = System.nanoTime();
+                ResponseEntity<Long> count = restTemplate.getForEntity("/student/count", Long.class);
+                assertThat(count.getStatusCode()).isEqualTo(HttpStatus.OK);
+                slowestProbe = Math.max(slowestProbe, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                Thread.sleep(20);
+            }
+            for (Future<ResponseEntity<String>> upload : uploads) {
+                assertThat(upload.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            executor.shutdown();
+            studentRepository.deleteAll(students);
+        }
+
+        logger.info("Slowest /student/count during upload storm: {} ms", slowestProbe);
+        assertThat(slowestProbe).isLessThan(MAX_PROBE_MILLIS);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.load;
+
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Загрузка аватара через {@code POST /avatar/{id}} для нагрузочных тестов.
+ */
+final class AvatarUploads {
+
+    private AvatarUploads() {
+    }
+
+    /**
+     * Загружает {@code size} случайных байт.
+     */
+    static ResponseEntity<String> upload(TestRestTemplate restTemplate, Long studentId, int size) {
+        byte[] payload = new byte[size];
+        ThreadLocalRandom.current().nextBytes(payload);
+        return upload(restTemplate, studentId, payload);
+    }
+
+    static ResponseEntity<String> upload(TestRestTemplate restTemplate, Long studentId, byte[] payload) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        // Без имени файла часть запроса не считается файлом и MultipartFile не заполняется
+        body.add("avatar", new ByteArrayResource(payload) {
+            @Override
+            public String getFilename() {
+                return "avatar.png";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity("/avatar/" + studentId, new HttpEntity<>(body, headers), String.class);
+    }
+}
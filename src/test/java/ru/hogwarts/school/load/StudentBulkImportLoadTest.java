@@ -0,0 +1,58 @@
+package ru.hogwarts.school.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.hogwarts.school.dto.ImportResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.show-sql=false")
+public class StudentBulkImportLoadTest {
+
+    private static final int ROWS = 200_000;
+    private static final String NAME_PREFIX = "Пакетный студент ";
+    private static final double MIN_ROWS_PER_SECOND = 50_000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM student WHERE name LIKE ?", NAME_PREFIX + "%");
+    }
+
+    @Test
+    void whenImportingCsv_thenShouldInsertAtLeastFiftyThousandRowsPerSecond() {
+        StringBuilder csv = new StringBuilder("name,age,faculty_id\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(NAME_PREFIX).append(i).append(",17,\n");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, "text/csv");
+        HttpEntity<byte[]> request = new HttpEntity<>(csv.toString().getBytes(StandardCharsets.UTF_8), headers);
+
+        long start = System.nanoTime();
+        ResponseEntity<ImportResult> response = restTemplate.postForEntity("/student/bulk", request, ImportResult.class);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().imported()).isEqualTo(ROWS);
+        assertThat(ROWS / seconds).isGreaterThanOrEqualTo(MIN_ROWS_PER_SECOND);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hogwarts.school.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeysetPageTest {
+
+    @Test
+    void whenRowsAreFewerThanLimitPlusOne_thenShouldBeLastPage() {
+        KeysetPage<Long> page = KeysetPage.of(List.of(1L, 2L), 2, id -> Cursor.of(id));
+
+        assertThat(page.content()).containsExactly(1L, 2L);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void whenProbeKeyRowIsMissing_thenShouldStillHaveNextPage() {
+        // Строки ключа 3 нет в базе (например, на отстающей реплике): продолжение определяется по ключам
+        Map<Long, String> rows = Map.of(1L, "Гарри", 2L, "Рон");
+
+        KeysetPage<String> page = KeysetPage.ofKeys(List.of(1L, 2L, 3L), 2, id -> Cursor.of(id),
+                keys -> keys.stream().map(rows::get).filter(Objects::nonNull).toList());
+
+        assertThat(page.content()).containsExactly("Гарри", "Рон");
+        assertThat(page.nextCursor()).isEqualTo(Cursor.of(2L).encode());
+    }
+
+    @Test
+    void whenLastKeyRowIsMissing_thenCursorShouldComeFromKey() {
+        Map<Long, String> rows = Map.of(1L, "Гарри", 3L, "Гермиона");
+
+        KeysetPage<String> page = KeysetPage.ofKeys(List.of(1L, 2L, 3L), 2, id -> Cursor.of(id),
+                keys -> keys.stream().map(rows::get).filter(Objects::nonNull).toList());
+
+        assertThat(page.content()).containsExactly("Гарри");
+        assertThat(Cursor.decode(page.nextCursor(), 1).key(0)).isEqualTo(2L);
+    }
+}
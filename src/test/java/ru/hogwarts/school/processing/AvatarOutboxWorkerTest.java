@@ -0,0 +1,95 @@
+package ru.hogwarts.school.processing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.repository.AvatarOutboxRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AvatarOutboxWorkerTest {
+
+    private static final String CONTENT_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    private AvatarOutboxRepository avatarOutboxRepository;
+    private AvatarRepository avatarRepository;
+    private AvatarProcessingStage stage;
+    private AvatarOutboxWorker worker;
+    private AvatarOutbox task;
+
+    @BeforeEach
+    void setUp() {
+        avatarOutboxRepository = mock(AvatarOutboxRepository.class);
+        avatarRepository = mock(AvatarRepository.class);
+        stage = mock(AvatarProcessingStage.class);
+        worker = new AvatarOutboxWorker(avatarOutboxRepository, avatarRepository,
+                new ContentAddressedFileStore("avatars"), List.of(stage), new ThreadPoolTaskExecutor(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(worker, "retryDelay", Duration.ofSeconds(30));
+
+        task = new AvatarOutbox(7L, CONTENT_HASH, Instant.now());
+        task.setId(1L);
+        task.setAttempts(1);
+        when(avatarRepository.existsByIdAndContentHash(7L, CONTENT_HASH)).thenReturn(true);
+    }
+
+    @Test
+    void whenStagesSucceed_thenShouldMarkReadyAndDeleteTask() throws Exception {
+        worker.process(task);
+
+        verify(stage).process(eq(task), any(Path.class));
+        verify(avatarRepository).updateStatus(7L, CONTENT_HASH, AvatarStatus.READY);
+        verify(avatarOutboxRepository).deleteById(1L);
+    }
+
+    @Test
+    void whenStageFails_thenShouldRescheduleTask() throws Exception {
+        doThrow(new IOException("boom")).when(stage).process(eq(task), any(Path.class));
+
+        worker.process(task);
+
+        verify(avatarOutboxRepository).reschedule(eq(1L), any(Instant.class));
+        verify(avatarOutboxRepository, never()).deleteById(1L);
+    }
+
+    @Test
+    void whenStageFailsOnLastAttempt_thenShouldMarkFailed() throws Exception {
+        task.setAttempts(3);
+        doThrow(new IOException("boom")).when(stage).process(eq(task), any(Path.class));
+
+        worker.process(task);
+
+        verify(avatarRepository).updateStatus(7L, CONTENT_HASH, AvatarStatus.FAILED);
+        verify(avatarOutboxRepository).deleteById(1L);
+    }
+
+    @Test
+    void whenAvatarReplaced_thenShouldDropTaskWithoutProcessing() throws Exception {
+        when(avatarRepository.existsByIdAndContentHash(7L, CONTENT_HASH)).thenReturn(false);
+
+        worker.process(task);
+
+        verify(stage, never()).process(any(), any());
+        verify(avatarOutboxRepository).deleteById(1L);
+    }
+}
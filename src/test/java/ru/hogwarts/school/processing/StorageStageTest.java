@@ -0,0 +1,57 @@
+package ru.hogwarts.school.processing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.model.AvatarOutbox;
+import ru.hogwarts.school.service.AvatarStorageService;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.AvatarStorages;
+import ru.hogwarts.school.storage.DatabaseAvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class StorageStageTest {
+
+    private static final String CONTENT_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    private AvatarStorageService avatarStorageService;
+    private List<AvatarStorage> storages;
+    private AvatarOutbox task;
+
+    @BeforeEach
+    void setUp() {
+        avatarStorageService = mock(AvatarStorageService.class);
+        AvatarStorage fileStorage = mock(AvatarStorage.class);
+        when(fileStorage.name()).thenReturn(FileSystemAvatarStorage.NAME);
+        AvatarStorage databaseStorage = mock(AvatarStorage.class);
+        when(databaseStorage.name()).thenReturn(DatabaseAvatarStorage.NAME);
+        storages = List.of(fileStorage, databaseStorage);
+        task = new AvatarOutbox(7L, CONTENT_HASH, Instant.now());
+    }
+
+    @Test
+    void whenPrimaryIsDisk_thenShouldLeaveFileInPlace() throws Exception {
+        stage("file").process(task, Path.of(CONTENT_HASH));
+
+        verifyNoInteractions(avatarStorageService);
+    }
+
+    @Test
+    void whenPrimaryIsNotDisk_thenShouldMoveToPrimary() throws Exception {
+        stage("db").process(task, Path.of(CONTENT_HASH));
+
+        verify(avatarStorageService).move(7L, CONTENT_HASH, "file", "db");
+    }
+
+    private StorageStage stage(String primary) {
+        return new StorageStage(new AvatarStorages(storages, primary, ""), avatarStorageService);
+    }
+}
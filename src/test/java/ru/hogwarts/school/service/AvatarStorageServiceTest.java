@@ -0,0 +1,159 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.function.ThrowingConsumer;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.AvatarStorages;
+import ru.hogwarts.school.storage.DatabaseAvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class AvatarStorageServiceTest {
+
+    private static final String CONTENT_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    private Path tempDir;
+
+    private AvatarRepository avatarRepository;
+    private AvatarStorage fileStorage;
+    private AvatarStorage databaseStorage;
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        avatarRepository = mock(AvatarRepository.class);
+        fileStorage = mock(AvatarStorage.class);
+        when(fileStorage.name()).thenReturn(FileSystemAvatarStorage.NAME);
+        databaseStorage = mock(AvatarStorage.class);
+        when(databaseStorage.name()).thenReturn(DatabaseAvatarStorage.NAME);
+        avatarThumbnailService = mock(AvatarThumbnailService.class);
+    }
+
+    @Test
+    void whenMovingLocalFile_thenShouldPutItAndSwitchStorage() throws Exception {
+        Path file = tempDir.resolve(CONTENT_HASH);
+        when(fileStorage.localPath(CONTENT_HASH)).thenReturn(Optional.of(file));
+        when(avatarRepository.updateStorage(7L, CONTENT_HASH, "file", "db")).thenReturn(1);
+
+        boolean moved = service("db").move(7L, CONTENT_HASH, "file", "db");
+
+        assertThat(moved).isTrue();
+        verify(databaseStorage).put(CONTENT_HASH, file);
+        verify(databaseStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void whenMovingFromRemoteStorage_thenShouldCopyThroughTempFile() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<ThrowingConsumer<InputStream>>getArgument(1)
+                    .accept(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+            return true;
+        }).when(databaseStorage).read(eq(CONTENT_HASH), any());
+        AtomicReference<Path> copy = new AtomicReference<>();
+        doAnswer(invocation -> {
+            Path source = invocation.getArgument(1);
+            assertThat(source).hasContent("hello");
+            copy.set(source);
+            return null;
+        }).when(fileStorage).put(eq(CONTENT_HASH), any());
+        when(avatarRepository.updateStorage(7L, CONTENT_HASH, "db", "file")).thenReturn(1);
+
+        assertThat(service("db").move(7L, CONTENT_HASH, "db", "file")).isTrue();
+
+        assertThat(copy.get()).doesNotExist();
+    }
+
+    @Test
+    void whenContentMissingInSource_thenShouldNotSwitchStorage() throws Exception {
+        when(databaseStorage.read(eq(CONTENT_HASH), any())).thenReturn(false);
+
+        assertThatThrownBy(() -> service("db").move(7L, CONTENT_HASH, "db", "file"))
+                .isInstanceOf(FileNotFoundException.class);
+
+        verify(fileStorage, never()).put(anyString(), any());
+        verify(avatarRepository, never()).updateStorage(any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void whenAvatarReplacedDuringCopy_thenShouldNotSwitchOrDelete() throws Exception {
+        when(fileStorage.localPath(CONTENT_HASH)).thenReturn(Optional.of(tempDir.resolve(CONTENT_HASH)));
+        when(avatarRepository.updateStorage(7L, CONTENT_HASH, "file", "db")).thenReturn(0);
+
+        assertThat(service("db").move(7L, CONTENT_HASH, "file", "db")).isFalse();
+
+        verify(databaseStorage, never()).delete(anyString());
+        verify(fileStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void whenTiering_thenShouldDemoteColdAndPromoteHotWithThumbnails() throws Exception {
+        Path file = Files.writeString(tempDir.resolve(CONTENT_HASH), "hello", StandardCharsets.UTF_8);
+        Avatar cold = avatar(7L, "file");
+        Avatar hot = avatar(8L, "db");
+        when(avatarRepository.findColdIn(eq("file"), any(Instant.class), eq(Limit.of(10)))).thenReturn(List.of(cold));
+        when(avatarRepository.findHotIn(eq("db"), any(Instant.class), eq(Limit.of(10)))).thenReturn(List.of(hot));
+        when(fileStorage.localPath(CONTENT_HASH)).thenReturn(Optional.of(file));
+        when(databaseStorage.read(eq(CONTENT_HASH), any())).thenReturn(true);
+        when(avatarRepository.updateStorage(any(), eq(CONTENT_HASH), anyString(), anyString())).thenReturn(1);
+
+        service("db").tier();
+
+        verify(avatarRepository).updateStorage(7L, CONTENT_HASH, "file", "db");
+        verify(avatarRepository).updateStorage(8L, CONTENT_HASH, "db", "file");
+        verify(avatarThumbnailService).generateThumbnails(file);
+    }
+
+    @Test
+    void whenNoColdStorage_thenShouldNotTier() {
+        service("").tier();
+
+        verifyNoInteractions(avatarRepository);
+    }
+
+    private AvatarStorageService service(String cold) {
+        AvatarStorageService service = new AvatarStorageService(avatarRepository,
+                new AvatarStorages(List.of(fileStorage, databaseStorage), "file", cold), avatarThumbnailService);
+        ReflectionTestUtils.setField(service, "coldAfter", Duration.ofDays(30));
+        ReflectionTestUtils.setField(service, "tieringBatchSize", 10);
+        return service;
+    }
+
+    private static Avatar avatar(Long id, String storage) {
+        Avatar avatar = new Avatar(id, "/avatars/" + CONTENT_HASH, 5L, "image/png", null);
+        avatar.setContentHash(CONTENT_HASH);
+        avatar.setStatus(AvatarStatus.READY);
+        avatar.setStorage(storage);
+        return avatar;
+    }
+}
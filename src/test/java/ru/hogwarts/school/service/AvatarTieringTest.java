@@ -0,0 +1,84 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStatus;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.ContentAddressedFileStore;
+import ru.hogwarts.school.storage.DatabaseAvatarStorage;
+import ru.hogwarts.school.storage.StoredFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Перенос в холодный бэкенд на настоящей базе: аватары без хеша, загруженные до хранилища по хешу,
+ * старше остальных и не должны занимать пачку переноса.
+ */
+@SpringBootTest(properties = {
+        "path.to.avatars.folder=${java.io.tmpdir}/avatars-tiering-test",
+        "avatars.storage.cold=db",
+        "avatars.storage.cold-after=P1D",
+        "avatars.storage.tiering.batch-size=1",
+        "avatars.storage.tiering.interval=P1D"
+})
+public class AvatarTieringTest {
+
+    private static final Instant LONG_AGO = Instant.parse("2000-01-01T00:00:00Z");
+
+    @Autowired
+    private AvatarStorageService avatarStorageService;
+
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    @Autowired
+    private ContentAddressedFileStore contentAddressedFileStore;
+
+    @Autowired
+    private DatabaseAvatarStorage databaseAvatarStorage;
+
+    private final List<Avatar> avatars = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        avatarRepository.deleteAll(avatars);
+        for (Avatar avatar : avatars) {
+            if (avatar.getContentHash() != null) {
+                databaseAvatarStorage.delete(avatar.getContentHash());
+            }
+        }
+    }
+
+    @Test
+    void whenLegacyAvatarIsColdest_thenShouldStillMoveHashedAvatar() throws Exception {
+        Avatar legacy = new Avatar(null, "/avatars/legacy.png", 5L, "image/png", null);
+        legacy.setStatus(AvatarStatus.READY);
+        legacy.setLastAccessedAt(LONG_AGO);
+        avatars.add(avatarRepository.save(legacy));
+
+        // Случайное содержимое: хеш не совпадет с содержимым других тестов
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        StoredFile storedFile = contentAddressedFileStore.store(new ByteArrayInputStream(content));
+        Avatar hashed = new Avatar(null, storedFile.path().toString(), storedFile.size(), "image/png", null);
+        hashed.setContentHash(storedFile.contentHash());
+        hashed.setStatus(AvatarStatus.READY);
+        hashed.setLastAccessedAt(LONG_AGO.plus(Duration.ofDays(1)));
+        avatars.add(avatarRepository.save(hashed));
+
+        avatarStorageService.tier();
+
+        assertThat(avatarRepository.findById(hashed.getId()).orElseThrow().getStorage()).isEqualTo("db");
+        assertThat(avatarRepository.findById(legacy.getId()).orElseThrow().getStorage()).isEqualTo("file");
+    }
+}
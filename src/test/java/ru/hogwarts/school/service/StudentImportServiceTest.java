@@ -0,0 +1,185 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.ImportError;
+import ru.hogwarts.school.dto.ImportResult;
+import ru.hogwarts.school.exception.ImportFormatException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * База заменена EntityManager, который копит студентов транзакции и «коммитит» их на flush.
+ * Студент с именем {@value #REJECTED_BY_DATABASE} роняет flush, как нарушение ограничения в базе.
+ */
+public class StudentImportServiceTest {
+
+    private static final String REJECTED_BY_DATABASE = "Отвергнутый";
+
+    private final List<Student> uncommitted = new ArrayList<>();
+    private final List<Student> saved = new ArrayList<>();
+    private StudentImportService service;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        doAnswer(invocation -> uncommitted.add(invocation.getArgument(0))).when(entityManager).persist(any(Student.class));
+        doAnswer(invocation -> {
+            boolean rejected = uncommitted.stream().anyMatch(student -> REJECTED_BY_DATABASE.equals(student.getName()));
+            List<Student> chunk = List.copyOf(uncommitted);
+            uncommitted.clear();
+            if (rejected) {
+                throw new PersistenceException("нарушено ограничение", new IllegalStateException("check violation"));
+            }
+            saved.addAll(chunk);
+            return null;
+        }).when(entityManager).flush();
+        when(entityManager.getReference(eq(Faculty.class), anyLong()))
+                .thenAnswer(invocation -> new Faculty(invocation.getArgument(1), "Факультет", "цвет"));
+        FacultyRepository facultyRepository = mock(FacultyRepository.class);
+        when(facultyRepository.findAllIds()).thenReturn(Set.of(1L, 2L));
+
+        service = new StudentImportService(entityManager, facultyRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper());
+        ReflectionTestUtils.setField(service, "chunkSize", 1000);
+        ReflectionTestUtils.setField(service, "maxReportedErrors", 100);
+    }
+
+    @Test
+    void whenCsvHasQuotedFields_thenShouldUnescapeCommasAndQuotes() throws Exception {
+        ImportResult result = service.importCsv(input("name,age,faculty_id\n" +
+                "\"Поттер, Гарри\",17,1\n" +
+                "\"Гарри \"\"Избранный\"\" Поттер\",17,\n"));
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(saved).extracting(Student::getName)
+                .containsExactly("Поттер, Гарри", "Гарри \"Избранный\" Поттер");
+        assertThat(saved.get(0).getFaculty().getId()).isEqualTo(1L);
+        assertThat(saved.get(1).getFaculty()).isNull();
+    }
+
+    @Test
+    void whenCsvHasCrlfAndEmbeddedNewlines_thenShouldKeepRecordsApart() throws Exception {
+        ImportResult result = service.importCsv(input("name,age\r\n" +
+                "\"Рон\r\nУизли\",17\r\n" +
+                "Гермиона Грейнджер,18\r\n"));
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(saved).extracting(Student::getName).containsExactly("Рон\r\nУизли", "Гермиона Грейнджер");
+        assertThat(saved).extracting(Student::getAge).containsExactly(17, 18);
+    }
+
+    @Test
+    void whenCsvColumnsInAnyOrder_thenShouldMapByHeaderAndIgnoreOthers() throws Exception {
+        ImportResult result = service.importCsv(input("faculty_id,id,age,name\n" +
+                "2,99,16,Джинни Уизли\n"));
+
+        assertThat(result.imported()).isEqualTo(1);
+        Student student = saved.get(0);
+        assertThat(student.getName()).isEqualTo("Джинни Уизли");
+        assertThat(student.getAge()).isEqualTo(16);
+        assertThat(student.getFaculty().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void whenCsvHeaderLacksRequiredColumns_thenShouldRejectFile() {
+        assertThatThrownBy(() -> service.importCsv(input("name,faculty_id\nГарри,1\n")))
+                .isInstanceOf(ImportFormatException.class);
+        assertThatThrownBy(() -> service.importCsv(input("")))
+                .isInstanceOf(ImportFormatException.class);
+    }
+
+    @Test
+    void whenAgeOrFacultyMissingOrInvalid_thenShouldRejectOnlyThoseRows() throws Exception {
+        ImportResult result = service.importCsv(input("name,age,faculty_id\n" +
+                "Гарри Поттер,17,1\n" +
+                "Без возраста,,1\n" +
+                "Отрицательный,-3,1\n" +
+                "Буквы,семнадцать,1\n" +
+                "Неизвестный факультет,17,42\n" +
+                "Кривой факультет,17,x\n" +
+                ",17,1\n"));
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(6);
+        assertThat(result.errors()).containsExactly(
+                new ImportError(2, "Недопустимый возраст"),
+                new ImportError(3, "Недопустимый возраст"),
+                new ImportError(4, "Возраст и faculty_id должны быть числами"),
+                new ImportError(5, "Факультет не найден: 42"),
+                new ImportError(6, "Возраст и faculty_id должны быть числами"),
+                new ImportError(7, "Не указано имя студента"));
+    }
+
+    @Test
+    void whenJsonHasInvalidAgeOrFaculty_thenShouldRejectOnlyThoseRows() throws Exception {
+        ImportResult result = service.importJson(input("[" +
+                "{\"name\": \"Гарри Поттер\", \"age\": 17, \"faculty\": {\"id\": 1}}," +
+                "{\"name\": \"Строка\", \"age\": \"17\"}," +
+                "{\"name\": \"Без возраста\"}," +
+                "{\"name\": \"Неизвестный факультет\", \"age\": 17, \"faculty\": {\"id\": 42}}," +
+                "42]"));
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.errors()).containsExactly(
+                new ImportError(2, "Возраст и faculty.id должны быть числами"),
+                new ImportError(3, "Недопустимый возраст"),
+                new ImportError(4, "Факультет не найден: 42"),
+                new ImportError(5, "Ожидается объект студента"));
+    }
+
+    @Test
+    void whenManyRowsRejected_thenShouldCapReportedErrorsButCountAll() throws Exception {
+        ReflectionTestUtils.setField(service, "maxReportedErrors", 2);
+
+        ImportResult result = service.importCsv(input("name,age\nА,0\nБ,0\nВ,0\nГ,0\nДамблдор,115\n"));
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(4);
+        assertThat(result.errors()).extracting(ImportError::row).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void whenChunkFailsInDatabase_thenShouldRetryRowByRowAndRejectOnlyBadRow() throws Exception {
+        ReflectionTestUtils.setField(service, "chunkSize", 3);
+
+        ImportResult result = service.importCsv(input("name,age\n" +
+                "Гарри,17\n" +
+                REJECTED_BY_DATABASE + ",17\n" +
+                "Рон,17\n" +
+                "Гермиона,18\n"));
+
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.errors()).containsExactly(
+                new ImportError(2, "Строка отклонена базой данных: check violation"));
+        assertThat(saved).extracting(Student::getName).containsExactly("Гарри", "Рон", "Гермиона");
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
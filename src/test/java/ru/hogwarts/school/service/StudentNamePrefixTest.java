@@ -0,0 +1,52 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code getAllNamesBeginWithLetter} на настоящей базе: префикс — литерал, а не шаблон LIKE,
+ * первые слова приводятся к верхнему регистру и сортируются. Имена начинаются с «Ъ», чтобы не пересечься
+ * с данными базы; транзакция теста откатывается.
+ */
+@SpringBootTest(properties = "path.to.avatars.folder=${java.io.tmpdir}/avatars-name-prefix-test")
+@Transactional
+public class StudentNamePrefixTest {
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (String name : new String[]{"Ъв Третий", "ъа строчный", "Ъб Второй", "Ъ%Пивз Полтергейст", "Ъ_Кикимер", "Ъ\\Добби"}) {
+            studentRepository.saveAndFlush(new Student(null, name, 17));
+        }
+    }
+
+    @Test
+    void whenPrefixMatches_thenShouldReturnUpperCasedFirstWordsSorted() {
+        assertThat(studentService.getAllNamesBeginWithLetter("Ъ"))
+                .containsExactly("Ъ%ПИВЗ", "Ъ\\ДОББИ", "Ъ_КИКИМЕР", "ЪБ", "ЪВ");
+    }
+
+    @Test
+    void whenPrefixDiffersInCase_thenShouldNotMatch() {
+        assertThat(studentService.getAllNamesBeginWithLetter("ъ")).containsExactly("ЪА");
+    }
+
+    @Test
+    void whenPrefixContainsLikeWildcards_thenShouldMatchThemLiterally() {
+        assertThat(studentService.getAllNamesBeginWithLetter("Ъ%")).containsExactly("Ъ%ПИВЗ");
+        assertThat(studentService.getAllNamesBeginWithLetter("Ъ_")).containsExactly("Ъ_КИКИМЕР");
+        assertThat(studentService.getAllNamesBeginWithLetter("Ъ\\")).containsExactly("Ъ\\ДОББИ");
+    }
+}
@@ -0,0 +1,82 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AvatarStorageCleanerTest {
+
+    private AvatarStorage databaseStorage;
+    private AvatarStorage fileStorage;
+    private AvatarRepository avatarRepository;
+    private AvatarStorageCleaner cleaner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        databaseStorage = mock(AvatarStorage.class);
+        when(databaseStorage.name()).thenReturn(DatabaseAvatarStorage.NAME);
+        fileStorage = mock(AvatarStorage.class);
+        when(fileStorage.name()).thenReturn(FileSystemAvatarStorage.NAME);
+        when(fileStorage.findContentHashes(any())).thenReturn(Stream.empty());
+        avatarRepository = mock(AvatarRepository.class);
+        AvatarStorages avatarStorages = new AvatarStorages(List.of(fileStorage, databaseStorage), "file", "db");
+        cleaner = new AvatarStorageCleaner(avatarStorages, avatarRepository, Duration.ofHours(1));
+    }
+
+    @Test
+    void whenContentUnreferenced_thenShouldDeleteOnlyIt() throws Exception {
+        when(databaseStorage.findContentHashes(any())).thenReturn(Stream.of("aa", "bb"));
+        when(avatarRepository.findReferencedContentHashes(anyCollection(), eq(DatabaseAvatarStorage.NAME)))
+                .thenReturn(List.of("aa"));
+        when(databaseStorage.deleteUnreferenced(eq("bb"), any(), any())).thenReturn(true);
+
+        cleaner.collectGarbage();
+
+        verify(databaseStorage, never()).deleteUnreferenced(eq("aa"), any(), any());
+        verify(databaseStorage).deleteUnreferenced(eq("bb"), any(), any());
+    }
+
+    @Test
+    void whenDeleting_thenShouldRecheckReferencesAndKeepGracePeriod() throws Exception {
+        Instant before = Instant.now().minus(Duration.ofHours(1));
+        when(databaseStorage.findContentHashes(any())).thenReturn(Stream.of("bb"));
+        when(avatarRepository.findReferencedContentHashes(anyCollection(), eq(DatabaseAvatarStorage.NAME)))
+                .thenReturn(List.of());
+        // Перенос успел сослаться на содержимое после выборки пачки
+        when(avatarRepository.existsByContentHashAndStorage("bb", DatabaseAvatarStorage.NAME)).thenReturn(true);
+        when(databaseStorage.deleteUnreferenced(eq("bb"), any(), any())).thenAnswer(invocation -> {
+            Instant olderThan = invocation.getArgument(1);
+            assertThat(olderThan).isBetween(before, Instant.now().minus(Duration.ofHours(1)));
+            return invocation.<BooleanSupplier>getArgument(2).getAsBoolean();
+        });
+
+        cleaner.collectGarbage();
+
+        verify(avatarRepository).existsByContentHashAndStorage("bb", DatabaseAvatarStorage.NAME);
+    }
+
+    @Test
+    void whenOneStorageFails_thenShouldStillCleanOthers() throws Exception {
+        when(fileStorage.findContentHashes(any())).thenThrow(new IllegalStateException("недоступно"));
+        when(databaseStorage.findContentHashes(any())).thenReturn(Stream.of("bb"));
+
+        cleaner.collectGarbage();
+
+        verify(databaseStorage).deleteUnreferenced(eq("bb"), any(), any());
+    }
+}
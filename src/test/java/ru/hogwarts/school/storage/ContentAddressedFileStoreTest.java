@@ -0,0 +1,79 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentAddressedFileStoreTest {
+
+    private static final String HELLO_SHA_256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    private Path root;
+
+    private ContentAddressedFileStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ContentAddressedFileStore(root.toString());
+    }
+
+    @Test
+    void whenStore_thenShouldWriteShardedFileNamedByHash() throws Exception {
+        StoredFile storedFile = store.store(stream("hello"));
+
+        assertThat(storedFile.contentHash()).isEqualTo(HELLO_SHA_256);
+        assertThat(storedFile.size()).isEqualTo(5);
+        assertThat(storedFile.created()).isTrue();
+        assertThat(storedFile.path()).isEqualTo(root.resolve("2c").resolve("f2").resolve(HELLO_SHA_256));
+        assertThat(Files.readString(storedFile.path())).isEqualTo("hello");
+    }
+
+    @Test
+    void whenStoreSameContentTwice_thenShouldKeepSingleFile() throws Exception {
+        StoredFile first = store.store(stream("hello"));
+        StoredFile second = store.store(stream("hello"));
+
+        assertThat(second.created()).isFalse();
+        assertThat(second.path()).isEqualTo(first.path());
+        try (var files = Files.list(root.resolve("tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void whenDelete_thenShouldRemoveFileWithDerivedFiles() throws Exception {
+        StoredFile storedFile = store.store(stream("hello"));
+        Path thumbnail = Files.writeString(storedFile.path().resolveSibling(HELLO_SHA_256 + "_64.jpg"), "tiny");
+
+        store.delete(HELLO_SHA_256);
+
+        assertThat(storedFile.path()).doesNotExist();
+        assertThat(thumbnail).doesNotExist();
+        assertThat(store.findContentHashes(Instant.now().plusSeconds(1))).isEmpty();
+    }
+
+    @Test
+    void whenDeleteOriginal_thenShouldKeepThumbnailsAndReportTheirHash() throws Exception {
+        StoredFile storedFile = store.store(stream("hello"));
+        Path thumbnail = Files.writeString(storedFile.path().resolveSibling(HELLO_SHA_256 + "_64.jpg"), "tiny");
+
+        store.deleteOriginal(HELLO_SHA_256);
+
+        assertThat(storedFile.path()).doesNotExist();
+        assertThat(thumbnail).exists();
+        assertThat(store.findContentHashes(Instant.now().plusSeconds(1))).containsExactly(HELLO_SHA_256);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.model.AvatarBlob;
+import ru.hogwarts.school.repository.AvatarBlobRepository;
+
+import javax.sql.rowset.serial.SerialBlob;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DatabaseAvatarStorageTest {
+
+    private static final String HELLO_SHA_256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    private Path tempDir;
+
+    private AvatarBlobRepository avatarBlobRepository;
+    private PlatformTransactionManager transactionManager;
+    private DatabaseAvatarStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        avatarBlobRepository = mock(AvatarBlobRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        storage = new DatabaseAvatarStorage(avatarBlobRepository, new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void whenRead_thenShouldPassContentAfterReadOnlyTransactionCommitted() throws Exception {
+        when(avatarBlobRepository.findById(HELLO_SHA_256)).thenReturn(Optional.of(
+                new AvatarBlob(HELLO_SHA_256, new SerialBlob("hello".getBytes(StandardCharsets.UTF_8)), Instant.now())));
+        AtomicReference<String> content = new AtomicReference<>();
+
+        boolean found = storage.read(HELLO_SHA_256, is -> {
+            // Клиент читает, когда соединение уже вернулось в пул
+            verify(transactionManager).commit(any());
+            content.set(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        });
+
+        assertThat(found).isTrue();
+        assertThat(content.get()).isEqualTo("hello");
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    void whenReadMissingContent_thenShouldReturnFalse() throws Exception {
+        when(avatarBlobRepository.findById(HELLO_SHA_256)).thenReturn(Optional.empty());
+
+        assertThat(storage.read(HELLO_SHA_256, is -> {
+        })).isFalse();
+    }
+
+    @Test
+    void whenContentAlreadyStored_thenShouldOnlyTouchIt() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("avatar.png"), "hello", StandardCharsets.UTF_8);
+        when(avatarBlobRepository.touch(eq(HELLO_SHA_256), any())).thenReturn(1);
+
+        storage.put(HELLO_SHA_256, source);
+
+        verify(avatarBlobRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void whenContentNew_thenShouldInsertIt() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("avatar.png"), "hello", StandardCharsets.UTF_8);
+
+        storage.put(HELLO_SHA_256, source);
+
+        verify(avatarBlobRepository).saveAndFlush(any(AvatarBlob.class));
+    }
+
+    @Test
+    void whenContentRecentlyTouched_thenShouldNotDeleteIt() {
+        Instant olderThan = Instant.now();
+        when(avatarBlobRepository.lockIfTouchedBefore(HELLO_SHA_256, olderThan)).thenReturn(Optional.empty());
+
+        assertThat(storage.deleteUnreferenced(HELLO_SHA_256, olderThan, () -> true)).isFalse();
+
+        verify(avatarBlobRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void whenContentReferencedAfterLock_thenShouldNotDeleteIt() {
+        Instant olderThan = Instant.now();
+        when(avatarBlobRepository.lockIfTouchedBefore(HELLO_SHA_256, olderThan)).thenReturn(Optional.of(HELLO_SHA_256));
+
+        assertThat(storage.deleteUnreferenced(HELLO_SHA_256, olderThan, () -> false)).isFalse();
+
+        verify(avatarBlobRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void whenContentUnreferencedAndLocked_thenShouldDeleteRowAndLargeObject() {
+        Instant olderThan = Instant.now();
+        when(avatarBlobRepository.lockIfTouchedBefore(HELLO_SHA_256, olderThan)).thenReturn(Optional.of(HELLO_SHA_256));
+
+        assertThat(storage.deleteUnreferenced(HELLO_SHA_256, olderThan, () -> true)).isTrue();
+
+        verify(avatarBlobRepository).unlinkData(HELLO_SHA_256);
+        verify(avatarBlobRepository).deleteById(HELLO_SHA_256);
+    }
+
+    @Test
+    void whenFindingContentHashes_thenShouldPageByLastKey() {
+        Instant olderThan = Instant.now();
+        List<String> firstPage = IntStream.range(0, 500).mapToObj(i -> String.format("%064d", i)).toList();
+        when(avatarBlobRepository.findContentHashesTouchedBefore(olderThan, "", Limit.of(500))).thenReturn(firstPage);
+        when(avatarBlobRepository.findContentHashesTouchedBefore(olderThan, firstPage.get(499), Limit.of(500)))
+                .thenReturn(List.of(HELLO_SHA_256));
+
+        assertThat(storage.findContentHashes(olderThan)).hasSize(501).endsWith(HELLO_SHA_256);
+    }
+}
@@ -0,0 +1,105 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3AvatarStorageTest {
+
+    private static final String HELLO_SHA_256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    private Path tempDir;
+
+    private S3Client s3Client;
+    private S3AvatarStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = mock(S3Client.class);
+        storage = new S3AvatarStorage(s3Client, "avatars");
+    }
+
+    @Test
+    void whenPut_thenShouldUploadUnderShardedKey() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("avatar.png"), "hello", StandardCharsets.UTF_8);
+
+        storage.put(HELLO_SHA_256, source);
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(request.capture(), any(RequestBody.class));
+        assertThat(request.getValue().bucket()).isEqualTo("avatars");
+        assertThat(request.getValue().key()).isEqualTo("2c/f2/" + HELLO_SHA_256);
+    }
+
+    @Test
+    void whenRead_thenShouldStreamObject() throws Exception {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)))));
+        AtomicReference<String> content = new AtomicReference<>();
+
+        boolean found = storage.read(HELLO_SHA_256, is -> content.set(new String(is.readAllBytes(), StandardCharsets.UTF_8)));
+
+        assertThat(found).isTrue();
+        assertThat(content.get()).isEqualTo("hello");
+    }
+
+    @Test
+    void whenReadMissingObject_thenShouldReturnFalse() throws Exception {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        assertThat(storage.read(HELLO_SHA_256, is -> {
+        })).isFalse();
+    }
+
+    @Test
+    void whenUnreferencedObjectIsOld_thenShouldDelete() {
+        Instant olderThan = Instant.parse("2026-01-01T00:00:00Z");
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().lastModified(olderThan.minusSeconds(1)).build());
+
+        assertThat(storage.deleteUnreferenced(HELLO_SHA_256, olderThan, () -> true)).isTrue();
+
+        ArgumentCaptor<DeleteObjectRequest> request = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(s3Client).deleteObject(request.capture());
+        assertThat(request.getValue().key()).isEqualTo("2c/f2/" + HELLO_SHA_256);
+    }
+
+    @Test
+    void whenObjectRewrittenAfterListing_thenShouldKeepIt() {
+        Instant olderThan = Instant.parse("2026-01-01T00:00:00Z");
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().lastModified(olderThan.plusSeconds(1)).build());
+
+        assertThat(storage.deleteUnreferenced(HELLO_SHA_256, olderThan, () -> true)).isFalse();
+
+        verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+}